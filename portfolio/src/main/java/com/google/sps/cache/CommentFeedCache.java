@@ -0,0 +1,142 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.sps.cache;
+
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+import com.google.sps.constants.Constants;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache of serialized comment feed pages. Pages are kept in process and, when
+ * {@code Constants.COMMENT_FEED_MEMCACHE_PROPERTY} is set, in memcache so every instance shares them.
+ * Any write to the comments must call {@link #invalidate()}.
+ */
+public final class CommentFeedCache {
+  private static final CommentFeedCache INSTANCE = new CommentFeedCache();
+
+  private static final int MAX_LOCAL_ENTRIES = 64;
+  // Other instances can't clear our local entries, so they only live for a short while.
+  private static final long LOCAL_TTL_MILLIS = 5000;
+  private static final String MEMCACHE_GENERATION_KEY = "comment-feed-generation";
+
+  private final AtomicLong generation = new AtomicLong();
+  private final Map<String, Entry> localEntries =
+      new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+          return size() > MAX_LOCAL_ENTRIES;
+        }
+      };
+  private final MemcacheService memcache;
+
+  private CommentFeedCache() {
+    memcache = Boolean.getBoolean(Constants.COMMENT_FEED_MEMCACHE_PROPERTY)
+        ? MemcacheServiceFactory.getMemcacheService()
+        : null;
+  }
+
+  public static CommentFeedCache getInstance() {
+    return INSTANCE;
+  }
+
+  /** Returns the token to pass to {@link #put} for a page read after this call. */
+  public long generation() {
+    return memcache == null ? generation.get() : memcacheGeneration();
+  }
+
+  /** Returns the cached payload of a page, or null if it has to be read from Datastore. */
+  public String get(String key) {
+    synchronized (localEntries) {
+      Entry entry = localEntries.get(key);
+      if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+        return entry.payload;
+      }
+    }
+
+    if (memcache == null) {
+      return null;
+    }
+
+    long localGeneration = generation.get();
+    String payload = (String) memcache.get(memcacheKey(memcacheGeneration(), key));
+    if (payload != null) {
+      putLocal(key, payload, localGeneration);
+    }
+    return payload;
+  }
+
+  /**
+   * Caches the payload of a page, unless the comments changed since {@code generation} was taken.
+   */
+  public void put(String key, String payload, long generation) {
+    // Taken before the check, a local write after it is then seen when inserting.
+    long localGeneration = this.generation.get();
+    if (generation != generation()) {
+      return;
+    }
+
+    putLocal(key, payload, localGeneration);
+    if (memcache != null) {
+      memcache.put(memcacheKey(generation, key), payload);
+    }
+  }
+
+  /** Drops every cached page. */
+  public void invalidate() {
+    // Bumping the generation orphans every page cached under the previous one. It's bumped before
+    // the local one, so a put which saw the old local generation also fails the memcache check.
+    if (memcache != null) {
+      memcache.increment(MEMCACHE_GENERATION_KEY, 1L, 0L);
+    }
+
+    synchronized (localEntries) {
+      generation.incrementAndGet();
+      localEntries.clear();
+    }
+  }
+
+  // Inserts a page unless a write was made since the local generation was taken, checked under the
+  // same lock as the invalidation so a stale page can't slip in after the entries are cleared.
+  private void putLocal(String key, String payload, long localGeneration) {
+    synchronized (localEntries) {
+      if (generation.get() == localGeneration) {
+        localEntries.put(key, new Entry(payload, System.currentTimeMillis() + LOCAL_TTL_MILLIS));
+      }
+    }
+  }
+
+  private long memcacheGeneration() {
+    Object memcacheGeneration = memcache.get(MEMCACHE_GENERATION_KEY);
+    return memcacheGeneration == null ? 0L : ((Number) memcacheGeneration).longValue();
+  }
+
+  private static String memcacheKey(long generation, String key) {
+    return "comment-feed:" + generation + ":" + key;
+  }
+
+  private static final class Entry {
+    private final String payload;
+    private final long expiresAt;
+
+    private Entry(String payload, long expiresAt) {
+      this.payload = payload;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
@@ -0,0 +1,158 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.zip.GZIPOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * A response body which doesn't change between requests, kept as UTF-8 bytes and gzipped once so
+ * answering only copies bytes. Each encoding has its own ETag, and a client sending one of them
+ * back in If-None-Match gets a 304 without a body.
+ */
+public final class CompressedBody {
+  // Smaller bodies fit in a packet anyway, gzip only adds its header.
+  private static final int MIN_GZIP_BYTES = 256;
+
+  private final String contentType;
+  private final byte[] identity;
+  private final byte[] gzip;
+  private final String identityTag;
+  private final String gzipTag;
+
+  /** The bytes must not be modified afterwards. */
+  public CompressedBody(byte[] body, String contentType) {
+    this.contentType = contentType;
+    this.identity = body;
+    byte[] compressed = body.length < MIN_GZIP_BYTES ? null : gzip(body);
+    this.gzip = compressed != null && compressed.length < body.length ? compressed : null;
+
+    String digest = digest(body);
+    identityTag = "\"" + digest + "\"";
+    gzipTag = "\"" + digest + "-gzip\"";
+  }
+
+  public CompressedBody(String body, String contentType) {
+    this(body.getBytes(StandardCharsets.UTF_8), contentType);
+  }
+
+  /** The size of the uncompressed body. */
+  public int length() {
+    return identity.length;
+  }
+
+  /** Answers the request with the smallest encoding the client accepts, or 304 if it's up to date. */
+  public void write(HttpServletRequest request, HttpServletResponse response, String cacheControl)
+      throws IOException {
+    boolean gzipped = gzip != null && acceptsGzip(request.getHeader("Accept-Encoding"));
+    String tag = gzipped ? gzipTag : identityTag;
+
+    response.setHeader("Cache-Control", cacheControl);
+    response.setHeader("Vary", "Accept-Encoding");
+    response.setHeader("ETag", tag);
+    if (matches(request.getHeader("If-None-Match"))) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
+    }
+
+    byte[] body = gzipped ? gzip : identity;
+    response.setContentType(contentType);
+    response.setCharacterEncoding("UTF-8");
+    if (gzipped) {
+      response.setHeader("Content-Encoding", "gzip");
+    }
+    response.setContentLength(body.length);
+    response.getOutputStream().write(body);
+    response.flushBuffer();
+  }
+
+  // Weak comparison, as If-None-Match asks for. Either tag matches since both encodings are the same
+  // content.
+  private boolean matches(String ifNoneMatch) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String tag : ifNoneMatch.split(",")) {
+      tag = tag.trim();
+      if (tag.startsWith("W/")) {
+        tag = tag.substring(2);
+      }
+      if (tag.equals("*") || tag.equals(identityTag) || tag.equals(gzipTag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Whether the Accept-Encoding header allows gzip. An entry naming gzip decides over "*", so
+   * "gzip;q=0, *" refuses it.
+   */
+  static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    Boolean gzip = null;
+    boolean any = false;
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parts = coding.split(";");
+      String name = parts[0].trim();
+      boolean accepted = true;
+      for (int i = 1; i < parts.length; i++) {
+        String parameter = parts[i].trim();
+        if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+          try {
+            accepted = Double.parseDouble(parameter.substring(2)) > 0;
+          } catch (NumberFormatException e) {
+            accepted = false;
+          }
+        }
+      }
+      if (name.equalsIgnoreCase("gzip") || name.equalsIgnoreCase("x-gzip")) {
+        gzip = (gzip != null && gzip) || accepted;
+      } else if (name.equals("*")) {
+        any |= accepted;
+      }
+    }
+    return gzip != null ? gzip : any;
+  }
+
+  private static byte[] gzip(byte[] body) {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4);
+    try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+      out.write(body);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return compressed.toByteArray();
+  }
+
+  private static String digest(byte[] body) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(body);
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(hash).substring(0, 22);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,131 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.chart;
+
+import com.google.sps.csv.CsvDictionary;
+import com.google.sps.csv.CsvReader;
+import com.google.sps.csv.CsvRow;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * NASA budget and patent data in primitive columns, one array per CSV column and one index per row.
+ * Text columns of patents, like the center, are dictionary encoded: the column holds codes into a
+ * small table of distinct values.
+ */
+public final class ChartColumns {
+  // Columns of patents.csv: center, status, case number, patent number, expiration date, year.
+  private static final int CENTER_COLUMN = 0;
+  private static final int STATUS_COLUMN = 1;
+  private static final int YEAR_COLUMN = 5;
+  // Smaller files aren't worth handing to other threads.
+  private static final int PARALLEL_BYTES = 4 * 1024 * 1024;
+
+  final int[] budgetYears;
+  final int[] budgets;
+
+  final int[] patentYears;
+  final int[] patentCenters;
+  final int[] patentStatuses;
+  final String[] centers;
+  final String[] statuses;
+
+  private ChartColumns(int[] budgetYears, int[] budgets, int[] patentYears, int[] patentCenters,
+      int[] patentStatuses, String[] centers, String[] statuses) {
+    this.budgetYears = budgetYears;
+    this.budgets = budgets;
+    this.patentYears = patentYears;
+    this.patentCenters = patentCenters;
+    this.patentStatuses = patentStatuses;
+    this.centers = centers;
+    this.statuses = statuses;
+  }
+
+  /**
+   * Reads the patents and budget CSVs, rows being year,budget for the budget. Large patent files are
+   * read in chunks on every processor.
+   */
+  public static ChartColumns load(ByteBuffer patents, ByteBuffer budget) {
+    int chunks = patents.remaining() >= PARALLEL_BYTES ? Runtime.getRuntime().availableProcessors() : 1;
+    List<PatentChunk> parsed = CsvReader.split(patents, chunks).parallelStream()
+        .map(PatentChunk::new)
+        .collect(Collectors.toList());
+
+    // Chunks number the centers and statuses they saw on their own, the codes are made global here.
+    int rows = 0;
+    for (PatentChunk chunk : parsed) {
+      rows += chunk.years.size();
+    }
+    int[] patentYears = new int[rows];
+    int[] patentCenters = new int[rows];
+    int[] patentStatuses = new int[rows];
+    CsvDictionary centers = new CsvDictionary();
+    CsvDictionary statuses = new CsvDictionary();
+
+    int offset = 0;
+    for (PatentChunk chunk : parsed) {
+      int[] centerCodes = recode(chunk.centers, centers);
+      int[] statusCodes = recode(chunk.statuses, statuses);
+      int[] years = chunk.years.toArray();
+      int[] chunkCenters = chunk.centerColumn.toArray();
+      int[] chunkStatuses = chunk.statusColumn.toArray();
+      for (int row = 0; row < years.length; row++) {
+        patentYears[offset + row] = years[row];
+        patentCenters[offset + row] = centerCodes[chunkCenters[row]];
+        patentStatuses[offset + row] = statusCodes[chunkStatuses[row]];
+      }
+      offset += years.length;
+    }
+
+    IntColumn budgetYears = new IntColumn();
+    IntColumn budgets = new IntColumn();
+    CsvReader.read(budget, row -> {
+      budgetYears.add(row.getInt(0));
+      budgets.add(row.getInt(1));
+    });
+
+    return new ChartColumns(budgetYears.toArray(), budgets.toArray(), patentYears, patentCenters,
+        patentStatuses, centers.values(), statuses.values());
+  }
+
+  private static int[] recode(CsvDictionary local, CsvDictionary global) {
+    String[] values = local.values();
+    int[] codes = new int[values.length];
+    for (int code = 0; code < values.length; code++) {
+      codes[code] = global.code(values[code]);
+    }
+    return codes;
+  }
+
+  /** The columns of one chunk of patents.csv, with codes of its own dictionaries. */
+  private static final class PatentChunk {
+    private final IntColumn years = new IntColumn();
+    private final IntColumn centerColumn = new IntColumn();
+    private final IntColumn statusColumn = new IntColumn();
+    private final CsvDictionary centers = new CsvDictionary();
+    private final CsvDictionary statuses = new CsvDictionary();
+
+    private PatentChunk(ByteBuffer chunk) {
+      CsvReader.read(chunk, this::add);
+    }
+
+    private void add(CsvRow row) {
+      years.add(row.getInt(YEAR_COLUMN));
+      centerColumn.add(centers.code(row, CENTER_COLUMN));
+      statusColumn.add(statuses.code(row, STATUS_COLUMN));
+    }
+  }
+}
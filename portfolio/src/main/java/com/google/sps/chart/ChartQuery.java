@@ -0,0 +1,62 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.chart;
+
+/**
+ * What a client asks of the chart: a series, restricted to a range of years, one NASA center and
+ * one patent status, and downsampled to a number of buckets. Null center and status mean all of
+ * them, zero buckets means one point per year.
+ */
+public final class ChartQuery {
+  final String series;
+  final int fromYear;
+  final int toYear;
+  final String center;
+  final String status;
+  final int buckets;
+
+  public ChartQuery(String series, int fromYear, int toYear, String center, String status, int buckets) {
+    if (fromYear > toYear) {
+      throw new IllegalArgumentException("The year range " + fromYear + "-" + toYear + " is empty");
+    }
+    if (buckets < 0) {
+      throw new IllegalArgumentException("Expected a non-negative number of buckets, got " + buckets);
+    }
+    this.series = series;
+    this.fromYear = fromYear;
+    this.toYear = toYear;
+    this.center = center;
+    this.status = status;
+    this.buckets = buckets;
+  }
+
+  /** The whole series, as precomputed at startup. */
+  public static ChartQuery all(String series) {
+    return new ChartQuery(series, Integer.MIN_VALUE, Integer.MAX_VALUE, null, null, 0);
+  }
+
+  boolean isAll() {
+    return fromYear == Integer.MIN_VALUE && toYear == Integer.MAX_VALUE && center == null
+        && status == null && buckets == 0;
+  }
+
+  boolean containsYear(int year) {
+    return year >= fromYear && year <= toYear;
+  }
+
+  String key() {
+    return series + "|" + fromYear + "|" + toYear + "|" + center + "|" + status + "|" + buckets;
+  }
+}
@@ -0,0 +1,256 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.chart;
+
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.cache.CompressedBody;
+import com.google.sps.classes.ChartDataPoint;
+import com.google.sps.json.Json;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders the series of the chart from the columns as UTF-8 JSON bodies:
+ * year       [{"year": 1995, "budget": 22130, "patents": 13}, ...] for every budget year
+ * center     [{"center": "NASA Langley Research Center", "patents": 296}, ...] most patents first
+ * cumulative the year series with budget and patents summed up to every year
+ *
+ * <p>Patents are indexed as counts per center, status and year, so a filtered series sums a few
+ * counters instead of scanning the patents. The whole series are rendered and compressed once,
+ * filtered ones are kept in a small LRU.
+ */
+public final class ChartSeries {
+  public static final String PER_YEAR = "year";
+  public static final String PER_CENTER = "center";
+  public static final String CUMULATIVE = "cumulative";
+
+  private static final int MAX_RENDERED = 128;
+
+  private final ChartColumns columns;
+  private final int minYear;
+  // Patents by center code, status code and year minus minYear.
+  private final int[][][] patentCounts;
+
+  private final Map<String, CompressedBody> all = new HashMap<>();
+  private final Map<String, CompressedBody> rendered =
+      new LinkedHashMap<String, CompressedBody>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompressedBody> eldest) {
+          return size() > MAX_RENDERED;
+        }
+      };
+
+  public ChartSeries(ChartColumns columns) {
+    this.columns = columns;
+
+    int min = Integer.MAX_VALUE;
+    int max = Integer.MIN_VALUE;
+    for (int year : columns.patentYears) {
+      min = Math.min(min, year);
+      max = Math.max(max, year);
+    }
+    minYear = min;
+    patentCounts = new int[columns.centers.length][columns.statuses.length][Math.max(0, max - min + 1)];
+    for (int row = 0; row < columns.patentYears.length; row++) {
+      patentCounts[columns.patentCenters[row]][columns.patentStatuses[row]][columns.patentYears[row] - minYear]++;
+    }
+
+    for (String series : Arrays.asList(PER_YEAR, PER_CENTER, CUMULATIVE)) {
+      all.put(series, new CompressedBody(render(ChartQuery.all(series)), "application/json"));
+    }
+  }
+
+  /** Returns the JSON body of the whole series, null for an unknown one. */
+  public CompressedBody body(String series) {
+    return all.get(series);
+  }
+
+  /**
+   * Returns the JSON body answering a query, null for an unknown series.
+   *
+   * @throws IllegalArgumentException if the center or status isn't in the data
+   */
+  public CompressedBody body(ChartQuery query) {
+    if (query.isAll()) {
+      return all.get(query.series);
+    }
+
+    String key = query.key();
+    synchronized (rendered) {
+      CompressedBody body = rendered.get(key);
+      if (body != null) {
+        return body;
+      }
+    }
+
+    byte[] json = render(query);
+    if (json == null) {
+      return null;
+    }
+    CompressedBody body = new CompressedBody(json, "application/json");
+    synchronized (rendered) {
+      rendered.put(key, body);
+    }
+    return body;
+  }
+
+  /** Renders the JSON answering a query, null for an unknown series. */
+  byte[] render(ChartQuery query) {
+    int[] centers = codes(columns.centers, query.center, "center");
+    int[] statuses = codes(columns.statuses, query.status, "status");
+
+    switch (query.series) {
+      case PER_YEAR:
+        return toJson(downsample(perYear(query, centers, statuses), query.buckets, false));
+      case CUMULATIVE:
+        return toJson(downsample(cumulative(perYear(query, centers, statuses)), query.buckets, true));
+      case PER_CENTER:
+        return perCenter(query, centers, statuses);
+      default:
+        return null;
+    }
+  }
+
+  private List<ChartDataPoint> perYear(ChartQuery query, int[] centers, int[] statuses) {
+    List<ChartDataPoint> points = new ArrayList<>(columns.budgetYears.length);
+    for (int row = 0; row < columns.budgetYears.length; row++) {
+      int year = columns.budgetYears[row];
+      if (query.containsYear(year)) {
+        points.add(new ChartDataPoint(year, columns.budgets[row], patents(year, centers, statuses)));
+      }
+    }
+    return points;
+  }
+
+  private static List<ChartDataPoint> cumulative(List<ChartDataPoint> perYear) {
+    List<ChartDataPoint> points = new ArrayList<>(perYear.size());
+    int budget = 0;
+    int patents = 0;
+    for (ChartDataPoint point : perYear) {
+      budget += point.budget;
+      patents += point.patents;
+      points.add(new ChartDataPoint(point.year, budget, patents));
+    }
+    return points;
+  }
+
+  /*
+   * Merges consecutive years into at most the given number of points. A bucket is dated by its first
+   * year and has the mean budget and the sum of patents. A cumulative bucket is its last point, dated
+   * by its last year, since its totals include every year of the bucket.
+   */
+  private static List<ChartDataPoint> downsample(List<ChartDataPoint> points, int buckets, boolean cumulative) {
+    if (buckets == 0 || buckets >= points.size()) {
+      return points;
+    }
+
+    List<ChartDataPoint> sampled = new ArrayList<>(buckets);
+    for (int bucket = 0; bucket < buckets; bucket++) {
+      int from = bucket * points.size() / buckets;
+      int to = (bucket + 1) * points.size() / buckets;
+      if (cumulative) {
+        sampled.add(points.get(to - 1));
+        continue;
+      }
+
+      long budget = 0;
+      int patents = 0;
+      for (ChartDataPoint point : points.subList(from, to)) {
+        budget += point.budget;
+        patents += point.patents;
+      }
+      sampled.add(new ChartDataPoint(points.get(from).year, (int) (budget / (to - from)), patents));
+    }
+    return sampled;
+  }
+
+  private byte[] perCenter(ChartQuery query, int[] centers, int[] statuses) {
+    int[] patentsPerCenter = new int[columns.centers.length];
+    List<Integer> order = new ArrayList<>();
+    for (int center : centers) {
+      for (int status : statuses) {
+        int[] perYear = patentCounts[center][status];
+        for (int offset = 0; offset < perYear.length; offset++) {
+          if (query.containsYear(minYear + offset)) {
+            patentsPerCenter[center] += perYear[offset];
+          }
+        }
+      }
+      order.add(center);
+    }
+    order.sort(Comparator.comparingInt((Integer center) -> patentsPerCenter[center]).reversed());
+
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    try (JsonWriter writer = Json.GSON.newJsonWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8))) {
+      writer.beginArray();
+      for (int center : order) {
+        writer.beginObject();
+        writer.name("center").value(columns.centers[center]);
+        writer.name("patents").value(patentsPerCenter[center]);
+        writer.endObject();
+      }
+      writer.endArray();
+    } catch (IOException e) {
+      // Only the in-memory stream is written to.
+      throw new UncheckedIOException(e);
+    }
+    return body.toByteArray();
+  }
+
+  private int patents(int year, int[] centers, int[] statuses) {
+    int offset = year - minYear;
+    int patents = 0;
+    for (int center : centers) {
+      for (int status : statuses) {
+        int[] perYear = patentCounts[center][status];
+        if (offset >= 0 && offset < perYear.length) {
+          patents += perYear[offset];
+        }
+      }
+    }
+    return patents;
+  }
+
+  // Every code when the filter is null, else the code of its value.
+  private static int[] codes(String[] values, String filter, String name) {
+    if (filter == null) {
+      int[] codes = new int[values.length];
+      for (int code = 0; code < codes.length; code++) {
+        codes[code] = code;
+      }
+      return codes;
+    }
+
+    int code = Arrays.asList(values).indexOf(filter);
+    if (code < 0) {
+      throw new IllegalArgumentException("Unknown " + name + " " + filter);
+    }
+    return new int[] {code};
+  }
+
+  private static byte[] toJson(List<ChartDataPoint> points) {
+    return Json.GSON.toJson(points).getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,25 @@
+package com.google.sps.classes;
+
+public class BatchResult {
+
+    public static final String DELETED = "deleted";
+    public static final String LIKED = "liked";
+    public static final String NOT_FOUND = "not_found";
+
+    private final long id;
+    private final String status;
+
+    public BatchResult(long id, String status) {
+        this.id = id;
+        this.status = status;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+}
@@ -1,6 +1,7 @@
 package com.google.sps.classes;
 
 import com.google.appengine.api.datastore.Entity;
+import com.google.sps.constants.Constants;
 
 public class Comment {
 
@@ -10,19 +11,36 @@ public class Comment {
     private final long timestamp;
     private int likes;
     private long id;
+    // Number of direct replies, unknown (null) in projections of the feed.
+    private final Long replies;
 
     public Comment(String comment, String user, long size, int likes, long timestamp) {
+        this(comment, user, size, likes, timestamp, 0L, 0L);
+    }
+
+    // A comment as it was sent as JSON, replies are null when it came from a projection.
+    public Comment(String comment, String user, long size, int likes, long timestamp, long id, Long replies) {
         this.comment = comment;
         this.user = user;
         this.size = size;
         this.likes = likes;
         this.timestamp = timestamp;
+        this.id = id;
+        this.replies = replies;
     }
 
+    // Projections of the feed only carry the preview of the comment and its stored size.
     public Comment(Entity entity) {
         user = (String) entity.getProperty("user");
-        comment = (String) entity.getProperty("comment");
-        size = comment.length();
+        if (entity.hasProperty("comment")) {
+            comment = (String) entity.getProperty("comment");
+            size = comment.length();
+            replies = entity.hasProperty("replies") ? (Long) entity.getProperty("replies") : 0L;
+        } else {
+            comment = (String) entity.getProperty("preview");
+            size = (long) entity.getProperty("size");
+            replies = null;
+        }
         timestamp = (long) entity.getProperty("time");
         likes = ((Long) entity.getProperty("likes")).intValue();
         
@@ -34,15 +52,29 @@ public class Comment {
         
         entity.setProperty("user", user);
         entity.setProperty("comment", comment);
+        entity.setProperty("preview", preview(comment));
         entity.setProperty("time", timestamp);
+        entity.setProperty("day", timestamp / Constants.DAY_MILLIS);
+        entity.setProperty("week", timestamp / Constants.WEEK_MILLIS);
         entity.setProperty("size", size);
-        entity.setProperty("likes", likes);
+        entity.setProperty("likes", (long) likes);
+        entity.setProperty("replies", replies);
         
         id = entity.getKey().getId();
 
         return entity;
     }
 
+    // The start of a comment stored for the preview view, one char shorter rather than ending in
+    // half of a surrogate pair.
+    public static String preview(String comment) {
+        int end = Math.min(comment.length(), Constants.COMMENT_PREVIEW_LENGTH);
+        if (end < comment.length() && Character.isHighSurrogate(comment.charAt(end - 1))) {
+            end--;
+        }
+        return comment.substring(0, end);
+    }
+
     public String getComment() {
         return comment;
     }
@@ -71,4 +103,8 @@ public class Comment {
         return id;
     }
 
+    public Long getReplies() {
+        return replies;
+    }
+
 }
@@ -0,0 +1,59 @@
+package com.google.sps.classes;
+
+public class CommentEvent {
+
+    public static final String INSERT = "insert";
+    public static final String DELETE = "delete";
+    public static final String LIKE = "like";
+
+    private final String type;
+    private final long id;
+    private final long likes;
+    private final Comment comment;
+    private long sequence;
+
+    private CommentEvent(String type, long id, long likes, Comment comment) {
+        this.type = type;
+        this.id = id;
+        this.likes = likes;
+        this.comment = comment;
+    }
+
+    public static CommentEvent insert(Comment comment) {
+        return new CommentEvent(INSERT, comment.getId(), 0, comment);
+    }
+
+    public static CommentEvent delete(long id) {
+        return new CommentEvent(DELETE, id, 0, null);
+    }
+
+    // Carries the number of likes added, not the new total.
+    public static CommentEvent like(long id, long likes) {
+        return new CommentEvent(LIKE, id, likes, null);
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getLikes() {
+        return likes;
+    }
+
+    public Comment getComment() {
+        return comment;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+}
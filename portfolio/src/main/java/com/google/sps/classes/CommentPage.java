@@ -0,0 +1,24 @@
+package com.google.sps.classes;
+
+import java.util.List;
+
+public class CommentPage {
+
+    private final List<Comment> comments;
+    private final String cursor;
+
+    public CommentPage(List<Comment> comments, String cursor) {
+        this.comments = comments;
+        this.cursor = cursor;
+    }
+
+    public List<Comment> getComments() {
+        return comments;
+    }
+
+    // Opaque token to request the next page with, null when there are no more comments.
+    public String getCursor() {
+        return cursor;
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.google.sps.classes;
+
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.sps.constants.Constants;
+
+public class Reply {
+
+    // Web safe keys, a reply is addressed by its path from the comment which started the thread.
+    private final String key;
+    private final String parent;
+    private final String comment;
+    private final String user;
+    private final long timestamp;
+    private final long replies;
+
+    public Reply(Entity entity) {
+        key = KeyFactory.keyToString(entity.getKey());
+        parent = KeyFactory.keyToString(entity.getKey().getParent());
+        comment = (String) entity.getProperty("comment");
+        user = (String) entity.getProperty("user");
+        timestamp = (long) entity.getProperty("time");
+        replies = (long) entity.getProperty("replies");
+    }
+
+    public static Entity toEntity(Key parent, String comment, String user, long timestamp) {
+        Entity entity = new Entity(Constants.REPLY_ENTITY, parent);
+
+        entity.setProperty("parent", parent);
+        entity.setProperty("comment", comment);
+        entity.setProperty("user", user);
+        entity.setProperty("time", timestamp);
+        entity.setProperty("replies", 0L);
+
+        return entity;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getParent() {
+        return parent;
+    }
+
+    public String getComment() {
+        return comment;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public long getTimeStamp() {
+        return timestamp;
+    }
+
+    public long getReplies() {
+        return replies;
+    }
+
+}
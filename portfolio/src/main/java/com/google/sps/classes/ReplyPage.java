@@ -0,0 +1,24 @@
+package com.google.sps.classes;
+
+import java.util.List;
+
+public class ReplyPage {
+
+    private final List<Reply> replies;
+    private final String cursor;
+
+    public ReplyPage(List<Reply> replies, String cursor) {
+        this.replies = replies;
+        this.cursor = cursor;
+    }
+
+    public List<Reply> getReplies() {
+        return replies;
+    }
+
+    // Opaque token to request the next page of the same thread with, null at its end.
+    public String getCursor() {
+        return cursor;
+    }
+
+}
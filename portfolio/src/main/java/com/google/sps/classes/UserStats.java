@@ -0,0 +1,28 @@
+package com.google.sps.classes;
+
+public class UserStats {
+
+    private final String user;
+    private final long comments;
+    private final long likes;
+
+    public UserStats(String user, long comments, long likes) {
+        this.user = user;
+        this.comments = comments;
+        this.likes = likes;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public long getComments() {
+        return comments;
+    }
+
+    // Likes received on every comment of the user.
+    public long getLikes() {
+        return likes;
+    }
+
+}
@@ -2,4 +2,33 @@ package com.google.sps.constants;
 
 public final class Constants {
     public static final String COMMENT_ENTITY = "Comment";
+    public static final String LIKE_SHARD_ENTITY = "LikeShard";
+    public static final String USER_STATS_ENTITY = "UserStats";
+    // Replies are children of the comment or reply they answer, a whole thread is one entity group.
+    public static final String REPLY_ENTITY = "Reply";
+    // Progress of one-off rewrites of existing entities, keyed by the name of the rewrite.
+    public static final String BACKFILL_ENTITY = "Backfill";
+
+    // Lengths of the windows of the top feed, comments store the window they were posted in.
+    public static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    public static final long WEEK_MILLIS = 7 * DAY_MILLIS;
+
+    // Number of characters of a comment shown before expanding it.
+    public static final int COMMENT_PREVIEW_LENGTH = 100;
+
+    // Number of shards the likes of every comment are spread across.
+    public static final int LIKE_SHARDS = 20;
+
+    // Number of shards the comment and like totals of every user are spread across.
+    public static final int USER_STATS_SHARDS = 20;
+
+    // System property enabling the shared memcache tier of the comment feed cache.
+    public static final String COMMENT_FEED_MEMCACHE_PROPERTY = "comments.feed.memcache";
+
+    // System property with the seconds between checks of the WEB-INF data files for changes.
+    public static final String DATA_RELOAD_SECONDS_PROPERTY = "data.reloadSeconds";
+    public static final int DEFAULT_DATA_RELOAD_SECONDS = 60;
+
+    // System property buffering likes in memory and writing them to Datastore in batches.
+    public static final String LIKES_WRITE_BEHIND_PROPERTY = "comments.likes.writeBehind";
 }
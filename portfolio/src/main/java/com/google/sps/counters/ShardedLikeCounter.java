@@ -0,0 +1,488 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.sps.counters;
+
+import com.google.appengine.api.datastore.AsyncDatastoreService;
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.EntityNotFoundException;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.Transaction;
+import com.google.appengine.api.datastore.TransactionOptions;
+import com.google.appengine.api.memcache.Expiration;
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheService.SetPolicy;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+import com.google.sps.classes.Comment;
+import com.google.sps.constants.Constants;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Counts the likes of a comment across {@code Constants.LIKE_SHARDS} root entities so concurrent
+ * likes land in different entity groups instead of contending on the comment. Shard 0 is seeded with
+ * the likes the comment had before it was sharded.
+ *
+ * <p>The {@code likes} property of the comment is kept as a sort key for the feed and is refreshed
+ * from the shards at most once per {@code ROLLUP_INTERVAL_SECONDS}. The likes of the author in
+ * {@link UserStatsCounter} are updated in the same transactions as the shards.
+ */
+public final class ShardedLikeCounter {
+  private static final int MAX_RETRIES = 3;
+  // Cross group transactions can't span more entity groups than this.
+  private static final int MAX_ENTITY_GROUPS = 25;
+  private static final int COUNT_CACHE_SECONDS = 10;
+  private static final int ROLLUP_INTERVAL_SECONDS = 1;
+  // Datastore batch gets and deletes accept up to this many keys.
+  private static final int MAX_BATCH_KEYS = 500;
+
+  private final DatastoreService dataStore;
+  private final AsyncDatastoreService asyncDataStore = DatastoreServiceFactory.getAsyncDatastoreService();
+  private final MemcacheService memcache = MemcacheServiceFactory.getMemcacheService();
+  private final UserStatsCounter userStats;
+
+  public ShardedLikeCounter(DatastoreService dataStore) {
+    this.dataStore = dataStore;
+    this.userStats = new UserStatsCounter(dataStore);
+  }
+
+  /** Adds one like to a comment. */
+  public void increment(long commentId) throws EntityNotFoundException {
+    seed(commentId);
+    add(Collections.singletonMap(commentId, 1L));
+  }
+
+  /**
+   * Adds a batch of likes by comment id. Comments share a transaction, each on one of its shards,
+   * as long as they and the stats of their authors fit in {@code MAX_ENTITY_GROUPS}. Likes of
+   * comments which no longer exist are dropped.
+   */
+  public void add(Map<Long, Long> likes) {
+    add(likes, new HashSet<Long>());
+  }
+
+  /**
+   * Adds a batch of likes like {@link #add(Map)}, collecting the ids of the comments whose likes
+   * were committed or dropped. The batch isn't one transaction, so when this throws the likes of
+   * those comments are already stored and only the others may be retried.
+   */
+  public void add(Map<Long, Long> likes, Set<Long> written) {
+    List<Key> commentKeys = new ArrayList<>();
+    for (long commentId : likes.keySet()) {
+      commentKeys.add(KeyFactory.createKey(Constants.COMMENT_ENTITY, commentId));
+    }
+    // The author never changes, so it's safe to read outside of the transactions.
+    Map<Key, Entity> existing = dataStore.get(commentKeys);
+
+    List<Long> commentIds = new ArrayList<>();
+    Map<Long, String> authors = new HashMap<>();
+    for (Key commentKey : commentKeys) {
+      Entity comment = existing.get(commentKey);
+      if (comment == null) {
+        System.out.println("Dropping likes of deleted comment " + commentKey.getId());
+        written.add(commentKey.getId());
+        continue;
+      }
+      try {
+        seed(commentKey.getId());
+        commentIds.add(commentKey.getId());
+        // Likes of comments the stats never counted stay out of them.
+        authors.put(commentKey.getId(),
+            UserStatsCounter.isCounted(comment) ? (String) comment.getProperty("user") : null);
+      } catch (EntityNotFoundException e) {
+        System.out.println(e);
+        written.add(commentKey.getId());
+      }
+    }
+
+    List<Long> batch = new ArrayList<>();
+    Set<String> batchAuthors = new HashSet<>();
+    for (long commentId : commentIds) {
+      String author = authors.get(commentId);
+      int authorGroups = batchAuthors.size()
+          + (author == null || batchAuthors.contains(author) ? 0 : 1);
+      if (batch.size() + 1 + authorGroups > MAX_ENTITY_GROUPS) {
+        addToShards(batch, likes, authors);
+        written.addAll(batch);
+        batch = new ArrayList<>();
+        batchAuthors.clear();
+      }
+      batch.add(commentId);
+      if (author != null) {
+        batchAuthors.add(author);
+      }
+    }
+    if (!batch.isEmpty()) {
+      addToShards(batch, likes, authors);
+      written.addAll(batch);
+    }
+
+    Map<String, Long> cachedDeltas = new HashMap<>();
+    List<Key> toRollUp = new ArrayList<>();
+    for (long commentId : commentIds) {
+      // Only bumps a cached total, a missing one is summed from the shards on the next read.
+      cachedDeltas.put(countKey(commentId), likes.get(commentId));
+      if (shouldRollUp(commentId)) {
+        toRollUp.add(KeyFactory.createKey(Constants.COMMENT_ENTITY, commentId));
+      }
+    }
+    memcache.incrementAll(cachedDeltas);
+
+    if (!toRollUp.isEmpty()) {
+      Collection<Entity> comments = dataStore.get(toRollUp).values();
+      Map<Long, Long> counts = counts(comments);
+      Map<Key, Long> totals = new HashMap<>();
+      for (Entity comment : comments) {
+        totals.put(comment.getKey(), counts.get(comment.getKey().getId()));
+      }
+      rollUp(totals);
+    }
+  }
+
+  // Stores the totals in the likes property of the comments. Comments are read again since the
+  // entities passed to counts may be projections missing other properties, and in a transaction so
+  // a reply count written meanwhile isn't overwritten. A busy comment is left to the next rollup.
+  private void rollUp(Map<Key, Long> likes) {
+    for (Map.Entry<Key, Long> entry : likes.entrySet()) {
+      Transaction txn = dataStore.beginTransaction();
+      try {
+        Entity comment = dataStore.get(txn, entry.getKey());
+        comment.setProperty("likes", entry.getValue());
+        if (!comment.hasProperty("preview")) {
+          comment.setProperty("preview", Comment.preview((String) comment.getProperty("comment")));
+        }
+        dataStore.put(txn, comment);
+        txn.commit();
+      } catch (EntityNotFoundException | ConcurrentModificationException e) {
+        System.out.println(e);
+      } finally {
+        if (txn.isActive()) {
+          txn.rollback();
+        }
+      }
+    }
+  }
+
+  private void addToShards(List<Long> commentIds, Map<Long, Long> likes, Map<Long, String> authors) {
+    Map<Key, Long> shardKeys = new HashMap<>();
+    Map<String, Long> authorLikes = new HashMap<>();
+    for (long commentId : commentIds) {
+      int shard = ThreadLocalRandom.current().nextInt(Constants.LIKE_SHARDS);
+      shardKeys.put(shardKey(commentId, shard), commentId);
+      if (UserStatsCounter.isCounted(authors.get(commentId))) {
+        authorLikes.merge(authors.get(commentId), likes.get(commentId), Long::sum);
+      }
+    }
+
+    TransactionOptions options = TransactionOptions.Builder.withXG(true);
+    for (int attempt = 0; ; attempt++) {
+      Transaction txn = dataStore.beginTransaction(options);
+      try {
+        Map<Key, Entity> existing = dataStore.get(txn, shardKeys.keySet());
+        List<Entity> shards = new ArrayList<>();
+        for (Map.Entry<Key, Long> entry : shardKeys.entrySet()) {
+          Entity shard = existing.get(entry.getKey());
+          if (shard == null) {
+            shard = newShard(entry.getKey(), entry.getValue(), 0L);
+          }
+          shard.setProperty("count", (Long) shard.getProperty("count") + likes.get(entry.getValue()));
+          shards.add(shard);
+        }
+        dataStore.put(txn, shards);
+        userStats.add(txn, Collections.<String, Long>emptyMap(), authorLikes);
+        txn.commit();
+        return;
+      } catch (ConcurrentModificationException e) {
+        if (attempt >= MAX_RETRIES) {
+          throw e;
+        }
+      } finally {
+        if (txn.isActive()) {
+          txn.rollback();
+        }
+      }
+    }
+  }
+
+  /** Returns the likes of a comment entity. */
+  public long count(Entity comment) {
+    List<Entity> comments = new ArrayList<>();
+    comments.add(comment);
+    return counts(comments).get(comment.getKey().getId());
+  }
+
+  /**
+   * Returns the likes of every comment entity by id, summing the shards of the ones which aren't
+   * cached in a single batch get. Comments whose {@code likes} property fell behind are refreshed.
+   */
+  public Map<Long, Long> counts(Collection<Entity> comments) {
+    List<String> countKeys = new ArrayList<>();
+    for (Entity comment : comments) {
+      countKeys.add(countKey(comment.getKey().getId()));
+    }
+    Map<String, Object> cached = memcache.getAll(countKeys);
+
+    List<Key> shardKeys = new ArrayList<>();
+    for (Entity comment : comments) {
+      long commentId = comment.getKey().getId();
+      if (!cached.containsKey(countKey(commentId))) {
+        for (int shard = 0; shard < Constants.LIKE_SHARDS; shard++) {
+          shardKeys.add(shardKey(commentId, shard));
+        }
+      }
+    }
+    Map<Key, Entity> shards = getInChunks(shardKeys);
+
+    Map<Long, Long> counts = new HashMap<>();
+    Map<String, Long> toCache = new HashMap<>();
+    Map<Key, Long> toRollUp = new HashMap<>();
+    for (Entity comment : comments) {
+      long commentId = comment.getKey().getId();
+      Object cachedCount = cached.get(countKey(commentId));
+      if (cachedCount != null) {
+        counts.put(commentId, ((Number) cachedCount).longValue());
+        continue;
+      }
+
+      // A comment without a seeded shard was never liked since sharding, its property is exact.
+      long count = (Long) comment.getProperty("likes");
+      if (shards.containsKey(shardKey(commentId, 0))) {
+        count = 0L;
+        for (int shard = 0; shard < Constants.LIKE_SHARDS; shard++) {
+          Entity shardEntity = shards.get(shardKey(commentId, shard));
+          if (shardEntity != null) {
+            count += (Long) shardEntity.getProperty("count");
+          }
+        }
+      }
+      counts.put(commentId, count);
+      toCache.put(countKey(commentId), count);
+
+      if (count != (Long) comment.getProperty("likes") && shouldRollUp(commentId)) {
+        toRollUp.put(comment.getKey(), count);
+      }
+    }
+    memcache.putAll(toCache, Expiration.byDeltaSeconds(COUNT_CACHE_SECONDS));
+    rollUp(toRollUp);
+
+    return counts;
+  }
+
+  /**
+   * Deletes a comment with its shards and replies and takes it and its likes out of its author's
+   * stats, all in one transaction. Returns whether it existed.
+   */
+  public boolean deleteComment(long commentId) {
+    boolean deleted = deleteWithShards(commentId);
+    if (deleted) {
+      memcache.delete(countKey(commentId));
+    }
+    return deleted;
+  }
+
+  /**
+   * Deletes comments with their shards and replies in batch calls, then takes them and their likes
+   * out of the stats of their authors in one aggregated update. Unlike {@link #deleteComment}, a like
+   * landing while the batch is deleted may stay in its author's likes. Returns the ids of the
+   * comments which existed.
+   */
+  public List<Long> deleteComments(Collection<Long> commentIds) {
+    List<Key> commentKeys = new ArrayList<>();
+    for (long commentId : commentIds) {
+      commentKeys.add(KeyFactory.createKey(Constants.COMMENT_ENTITY, commentId));
+    }
+    Map<Key, Entity> comments = dataStore.get(commentKeys);
+    if (comments.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    List<Key> keys = new ArrayList<>();
+    List<Key> shardKeys = new ArrayList<>();
+    List<List<Entity>> replies = new ArrayList<>();
+    for (Entity comment : comments.values()) {
+      keys.add(comment.getKey());
+      for (int shard = 0; shard < Constants.LIKE_SHARDS; shard++) {
+        shardKeys.add(shardKey(comment.getKey().getId(), shard));
+      }
+      // Only threads with replies are queried, and all of them at once.
+      Object replyCount = comment.getProperty("replies");
+      if (replyCount != null && (Long) replyCount > 0) {
+        Query query = new Query(Constants.REPLY_ENTITY).setAncestor(comment.getKey()).setKeysOnly();
+        replies.add(asyncDataStore.prepare(query).asList(FetchOptions.Builder.withDefaults()));
+      }
+    }
+    keys.addAll(shardKeys);
+    Map<Key, Entity> shards = getInChunks(shardKeys);
+    for (List<Entity> thread : replies) {
+      for (Entity reply : thread) {
+        keys.add(reply.getKey());
+      }
+    }
+    for (int from = 0; from < keys.size(); from += MAX_BATCH_KEYS) {
+      dataStore.delete(keys.subList(from, Math.min(keys.size(), from + MAX_BATCH_KEYS)));
+    }
+
+    List<Long> deleted = new ArrayList<>();
+    List<String> countKeys = new ArrayList<>();
+    Map<String, Long> authorComments = new HashMap<>();
+    Map<String, Long> authorLikes = new HashMap<>();
+    for (Entity comment : comments.values()) {
+      long commentId = comment.getKey().getId();
+      deleted.add(commentId);
+      countKeys.add(countKey(commentId));
+      if (UserStatsCounter.isCounted(comment)) {
+        String user = (String) comment.getProperty("user");
+        authorComments.merge(user, -1L, Long::sum);
+        authorLikes.merge(user, -likes(comment, shards), Long::sum);
+      }
+    }
+    userStats.add(authorComments, authorLikes);
+    memcache.deleteAll(countKeys);
+    return deleted;
+  }
+
+  // Every comment has LIKE_SHARDS shard keys, a few hundred comments already exceed one batch get.
+  private Map<Key, Entity> getInChunks(List<Key> keys) {
+    Map<Key, Entity> entities = new HashMap<>();
+    for (int from = 0; from < keys.size(); from += MAX_BATCH_KEYS) {
+      entities.putAll(dataStore.get(keys.subList(from, Math.min(keys.size(), from + MAX_BATCH_KEYS))));
+    }
+    return entities;
+  }
+
+  // Unseeded comments were never liked since sharding, their property is exact.
+  private static long likes(Entity comment, Map<Key, Entity> shards) {
+    long commentId = comment.getKey().getId();
+    if (!shards.containsKey(shardKey(commentId, 0))) {
+      return (Long) comment.getProperty("likes");
+    }
+    long likes = 0L;
+    for (int shard = 0; shard < Constants.LIKE_SHARDS; shard++) {
+      Entity shardEntity = shards.get(shardKey(commentId, shard));
+      if (shardEntity != null) {
+        likes += (Long) shardEntity.getProperty("count");
+      }
+    }
+    return likes;
+  }
+
+  private boolean deleteWithShards(long commentId) {
+    Key commentKey = KeyFactory.createKey(Constants.COMMENT_ENTITY, commentId);
+    List<Key> shardKeys = new ArrayList<>();
+    for (int shard = 0; shard < Constants.LIKE_SHARDS; shard++) {
+      shardKeys.add(shardKey(commentId, shard));
+    }
+
+    for (int attempt = 0; ; attempt++) {
+      Transaction txn = dataStore.beginTransaction(TransactionOptions.Builder.withXG(true));
+      try {
+        Entity comment;
+        try {
+          comment = dataStore.get(txn, commentKey);
+        } catch (EntityNotFoundException e) {
+          return false;
+        }
+
+        long likes = likes(comment, dataStore.get(txn, shardKeys));
+
+        List<Key> keys = new ArrayList<>(shardKeys);
+        keys.add(commentKey);
+        // The replies are in the entity group of the comment, the whole thread goes with it.
+        Query replies = new Query(Constants.REPLY_ENTITY).setAncestor(commentKey).setKeysOnly();
+        for (Entity reply : dataStore.prepare(txn, replies).asIterable()) {
+          keys.add(reply.getKey());
+        }
+        dataStore.delete(txn, keys);
+        if (UserStatsCounter.isCounted(comment)) {
+          String user = (String) comment.getProperty("user");
+          userStats.add(txn, Collections.singletonMap(user, -1L), Collections.singletonMap(user, -likes));
+        }
+        txn.commit();
+        return true;
+      } catch (ConcurrentModificationException e) {
+        if (attempt >= MAX_RETRIES) {
+          throw e;
+        }
+      } finally {
+        if (txn.isActive()) {
+          txn.rollback();
+        }
+      }
+    }
+  }
+
+  private void seed(long commentId) throws EntityNotFoundException {
+    if (memcache.contains(seededKey(commentId))) {
+      return;
+    }
+
+    Key shardKey = shardKey(commentId, 0);
+    Transaction txn = dataStore.beginTransaction(TransactionOptions.Builder.withXG(true));
+    try {
+      try {
+        dataStore.get(txn, shardKey);
+      } catch (EntityNotFoundException e) {
+        Entity comment =
+            dataStore.get(txn, KeyFactory.createKey(Constants.COMMENT_ENTITY, commentId));
+        dataStore.put(txn, newShard(shardKey, commentId, (Long) comment.getProperty("likes")));
+      }
+      txn.commit();
+    } finally {
+      if (txn.isActive()) {
+        txn.rollback();
+      }
+    }
+
+    memcache.put(seededKey(commentId), true);
+  }
+
+  // Lets one caller across all instances refresh the comment per interval.
+  private boolean shouldRollUp(long commentId) {
+    return memcache.put("like-rollup:" + commentId, true,
+        Expiration.byDeltaSeconds(ROLLUP_INTERVAL_SECONDS), SetPolicy.ADD_ONLY_IF_NOT_PRESENT);
+  }
+
+  private static Entity newShard(Key shardKey, long commentId, long count) {
+    Entity shard = new Entity(shardKey);
+    shard.setProperty("comment", commentId);
+    shard.setProperty("count", count);
+    return shard;
+  }
+
+  private static Key shardKey(long commentId, int shard) {
+    return KeyFactory.createKey(Constants.LIKE_SHARD_ENTITY, commentId + "-" + shard);
+  }
+
+  private static String countKey(long commentId) {
+    return "like-count:" + commentId;
+  }
+
+  private static String seededKey(long commentId) {
+    return "like-seeded:" + commentId;
+  }
+}
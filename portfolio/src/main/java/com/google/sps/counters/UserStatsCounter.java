@@ -0,0 +1,195 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.counters;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.Transaction;
+import com.google.appengine.api.datastore.TransactionOptions;
+import com.google.sps.classes.UserStats;
+import com.google.sps.constants.Constants;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Keeps how many comments every user posted and how many likes they received across
+ * {@code Constants.USER_STATS_SHARDS} root entities per user, so profile figures are a single batch
+ * get instead of a scan of the comments, and likes on a popular comment don't all contend on one
+ * entity. Updates join the transaction writing the comments or like shards they count, so the
+ * figures never drift from them.
+ *
+ * <p>Counting starts with this entity. Comments it counted are marked with {@code COUNTED_PROPERTY};
+ * comments posted before it existed aren't, and neither their likes nor their deletion touch the
+ * figures.
+ */
+public final class UserStatsCounter {
+  private static final int MAX_RETRIES = 3;
+  // Cross group transactions can't span more entity groups than this.
+  private static final int MAX_ENTITY_GROUPS = 25;
+  private static final String COUNTED_PROPERTY = "counted";
+
+  private final DatastoreService dataStore;
+
+  public UserStatsCounter(DatastoreService dataStore) {
+    this.dataStore = dataStore;
+  }
+
+  /** Stores a new comment and counts it for its user in one transaction. */
+  public void putComment(Entity comment) {
+    String user = (String) comment.getProperty("user");
+    if (isCounted(user)) {
+      comment.setUnindexedProperty(COUNTED_PROPERTY, true);
+    }
+    for (int attempt = 0; ; attempt++) {
+      Transaction txn = dataStore.beginTransaction(TransactionOptions.Builder.withXG(true));
+      try {
+        dataStore.put(txn, comment);
+        add(txn, Collections.singletonMap(user, 1L), Collections.singletonMap(user, (Long) comment.getProperty("likes")));
+        txn.commit();
+        return;
+      } catch (ConcurrentModificationException e) {
+        if (attempt >= MAX_RETRIES) {
+          throw e;
+        }
+      } finally {
+        if (txn.isActive()) {
+          txn.rollback();
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds comment and like deltas by user in their own transactions, each covering as many users as
+   * a cross group transaction can.
+   */
+  public void add(Map<String, Long> comments, Map<String, Long> likes) {
+    Set<String> users = new HashSet<>(comments.keySet());
+    users.addAll(likes.keySet());
+
+    List<String> batch = new ArrayList<>();
+    for (String user : users) {
+      batch.add(user);
+      if (batch.size() == MAX_ENTITY_GROUPS) {
+        addInTransaction(batch, comments, likes);
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) {
+      addInTransaction(batch, comments, likes);
+    }
+  }
+
+  private void addInTransaction(List<String> users, Map<String, Long> comments, Map<String, Long> likes) {
+    Map<String, Long> batchComments = new HashMap<>();
+    Map<String, Long> batchLikes = new HashMap<>();
+    for (String user : users) {
+      batchComments.put(user, comments.getOrDefault(user, 0L));
+      batchLikes.put(user, likes.getOrDefault(user, 0L));
+    }
+
+    for (int attempt = 0; ; attempt++) {
+      Transaction txn = dataStore.beginTransaction(TransactionOptions.Builder.withXG(true));
+      try {
+        add(txn, batchComments, batchLikes);
+        txn.commit();
+        return;
+      } catch (ConcurrentModificationException e) {
+        if (attempt >= MAX_RETRIES) {
+          throw e;
+        }
+      } finally {
+        if (txn.isActive()) {
+          txn.rollback();
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds comment and like deltas by user to one of their shards within txn, which has to be cross
+   * group and leave room for one entity group per user. Comments without a user aren't counted.
+   */
+  public void add(Transaction txn, Map<String, Long> comments, Map<String, Long> likes) {
+    Set<String> users = new HashSet<>(comments.keySet());
+    users.addAll(likes.keySet());
+
+    Map<Key, String> keys = new HashMap<>();
+    for (String user : users) {
+      if (isCounted(user)) {
+        keys.put(key(user, ThreadLocalRandom.current().nextInt(Constants.USER_STATS_SHARDS)), user);
+      }
+    }
+    if (keys.isEmpty()) {
+      return;
+    }
+
+    Map<Key, Entity> existing = dataStore.get(txn, keys.keySet());
+    List<Entity> shards = new ArrayList<>();
+    for (Map.Entry<Key, String> entry : keys.entrySet()) {
+      Entity shard = existing.get(entry.getKey());
+      if (shard == null) {
+        shard = new Entity(entry.getKey());
+        shard.setProperty("user", entry.getValue());
+        shard.setProperty("comments", 0L);
+        shard.setProperty("likes", 0L);
+      }
+      String user = entry.getValue();
+      shard.setProperty("comments", (Long) shard.getProperty("comments") + comments.getOrDefault(user, 0L));
+      shard.setProperty("likes", (Long) shard.getProperty("likes") + likes.getOrDefault(user, 0L));
+      shards.add(shard);
+    }
+    dataStore.put(txn, shards);
+  }
+
+  /** Returns the figures of a user, zero for a user who never posted. */
+  public UserStats get(String user) {
+    List<Key> keys = new ArrayList<>();
+    for (int shard = 0; shard < Constants.USER_STATS_SHARDS; shard++) {
+      keys.add(key(user, shard));
+    }
+
+    long comments = 0;
+    long likes = 0;
+    for (Entity shard : dataStore.get(keys).values()) {
+      comments += (Long) shard.getProperty("comments");
+      likes += (Long) shard.getProperty("likes");
+    }
+    return new UserStats(user, comments, likes);
+  }
+
+  /** Returns whether a comment is in the figures of its user, its likes and deletion have to be. */
+  public static boolean isCounted(Entity comment) {
+    return Boolean.TRUE.equals(comment.getProperty(COUNTED_PROPERTY));
+  }
+
+  /** Returns whether a user gets a stats entity, key names can't be empty. */
+  public static boolean isCounted(String user) {
+    return user != null && !user.isEmpty();
+  }
+
+  private static Key key(String user, int shard) {
+    return KeyFactory.createKey(Constants.USER_STATS_ENTITY, user + "-" + shard);
+  }
+}
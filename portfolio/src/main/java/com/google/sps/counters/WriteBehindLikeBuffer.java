@@ -0,0 +1,122 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.sps.counters;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accumulates likes in memory and writes them to a {@link ShardedLikeCounter} in batches, once
+ * {@code FLUSH_THRESHOLD} likes are pending or {@code FLUSH_INTERVAL_MILLIS} have passed. Requests
+ * can't run background timers here, so the interval is checked whenever a like is added or the feed
+ * is read. Likes which haven't been flushed are lost if the instance shuts down.
+ */
+public final class WriteBehindLikeBuffer {
+  private static final WriteBehindLikeBuffer INSTANCE = new WriteBehindLikeBuffer();
+
+  private static final int FLUSH_THRESHOLD = 100;
+  private static final long FLUSH_INTERVAL_MILLIS = 2000;
+
+  // ConcurrentHashMap.merge and compute are atomic per key, so no like is lost between an add and a
+  // flush draining the same comment. A drained delta is in inFlight before it leaves pending, so a
+  // read may briefly count it twice but never misses it.
+  private final ConcurrentHashMap<Long, Long> pending = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<Long, Long> inFlight = new ConcurrentHashMap<>();
+  private final AtomicInteger pendingLikes = new AtomicInteger();
+  private final AtomicLong lastFlush = new AtomicLong(System.currentTimeMillis());
+  private final AtomicBoolean flushing = new AtomicBoolean();
+
+  private WriteBehindLikeBuffer() {}
+
+  public static WriteBehindLikeBuffer getInstance() {
+    return INSTANCE;
+  }
+
+  /** Adds one like to a comment. */
+  public void add(long commentId) {
+    add(commentId, 1L);
+  }
+
+  /** Adds several likes to a comment. */
+  public void add(long commentId, long likes) {
+    pending.merge(commentId, likes, Long::sum);
+    pendingLikes.addAndGet((int) likes);
+  }
+
+  /** Returns the likes of a comment which haven't been written yet. */
+  public long pending(long commentId) {
+    return pending.getOrDefault(commentId, 0L) + inFlight.getOrDefault(commentId, 0L);
+  }
+
+  /** Writes the pending likes if enough of them piled up or enough time passed. */
+  public void flushIfDue(ShardedLikeCounter counter) {
+    boolean due = pendingLikes.get() >= FLUSH_THRESHOLD
+        || System.currentTimeMillis() - lastFlush.get() >= FLUSH_INTERVAL_MILLIS;
+    if (due) {
+      flush(counter);
+    }
+  }
+
+  /** Writes every pending like, unless another request is already doing so. */
+  public void flush(ShardedLikeCounter counter) {
+    if (!flushing.compareAndSet(false, true)) {
+      return;
+    }
+
+    try {
+      lastFlush.set(System.currentTimeMillis());
+
+      Map<Long, Long> likes = new HashMap<>();
+      for (Long commentId : pending.keySet()) {
+        pending.computeIfPresent(commentId, (id, delta) -> {
+          likes.put(id, delta);
+          inFlight.put(id, delta);
+          pendingLikes.addAndGet(-delta.intValue());
+          return null;
+        });
+      }
+
+      if (likes.isEmpty()) {
+        return;
+      }
+
+      Set<Long> written = new HashSet<>();
+      try {
+        counter.add(likes, written);
+      } catch (RuntimeException e) {
+        // Keep the likes which weren't stored around for the next flush, the others are committed
+        // and would be counted twice.
+        for (Map.Entry<Long, Long> entry : likes.entrySet()) {
+          if (!written.contains(entry.getKey())) {
+            pending.merge(entry.getKey(), entry.getValue(), Long::sum);
+            pendingLikes.addAndGet(entry.getValue().intValue());
+          }
+        }
+        throw e;
+      } finally {
+        inFlight.clear();
+      }
+    } finally {
+      flushing.set(false);
+    }
+  }
+}
@@ -0,0 +1,77 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.csv;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Dictionary encodes a low cardinality text column, like a category: every distinct value gets a
+ * small int code in order of appearance. Fields are matched by hash and raw bytes, so a value is
+ * only decoded to a String the first time it's seen.
+ */
+public final class CsvDictionary {
+  private final List<String> values = new ArrayList<>();
+  private final List<byte[]> bytes = new ArrayList<>();
+  private int[] hashes = new int[16];
+
+  /** Returns the code of a field, adding it if it's new. */
+  public int code(CsvRow row, int column) {
+    if (row.isQuoted(column)) {
+      return code(row.getString(column));
+    }
+
+    int hash = row.hash(column);
+    for (int code = 0; code < values.size(); code++) {
+      if (hashes[code] == hash && row.contentEquals(column, bytes.get(code))) {
+        return code;
+      }
+    }
+    return add(row.getString(column));
+  }
+
+  /** Returns the code of a value, adding it if it's new. */
+  public int code(String value) {
+    int code = values.indexOf(value);
+    return code >= 0 ? code : add(value);
+  }
+
+  public int size() {
+    return values.size();
+  }
+
+  /** Returns the values, indexed by code. */
+  public String[] values() {
+    return values.toArray(new String[0]);
+  }
+
+  private int add(String value) {
+    byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+    int hash = 1;
+    for (byte b : encoded) {
+      hash = 31 * hash + b;
+    }
+
+    if (values.size() == hashes.length) {
+      hashes = Arrays.copyOf(hashes, hashes.length * 2);
+    }
+    hashes[values.size()] = hash;
+    values.add(value);
+    bytes.add(encoded);
+    return values.size() - 1;
+  }
+}
@@ -0,0 +1,186 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.csv;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import javax.servlet.ServletContext;
+
+/**
+ * Reads comma separated rows straight from a buffer, which can be a memory mapped file, without
+ * copying lines or splitting them with a regex. Fields may be quoted with double quotes, holding
+ * commas, line breaks and doubled quotes. Rows end with \n or \r\n, empty lines are skipped.
+ *
+ * <p>A large buffer can be cut into chunks at row boundaries with {@link #split} and every chunk read
+ * on its own thread.
+ */
+public final class CsvReader {
+  private static final byte QUOTE = '"';
+  private static final byte COMMA = ',';
+  private static final byte CR = '\r';
+  private static final byte LF = '\n';
+
+  /** Receives every row of a buffer, in order. */
+  public interface RowHandler {
+    void row(CsvRow row);
+  }
+
+  private CsvReader() {}
+
+  /** Calls the handler for every row between the position and the limit of the buffer. */
+  public static void read(ByteBuffer buffer, RowHandler handler) {
+    CsvRow row = new CsvRow(buffer);
+    int position = buffer.position();
+    int limit = buffer.limit();
+
+    while (position < limit) {
+      row.clear();
+      boolean endOfRow = false;
+      while (!endOfRow) {
+        int start = position;
+        int end;
+        boolean quoted = position < limit && buffer.get(position) == QUOTE;
+        if (quoted) {
+          start = ++position;
+          while (position < limit
+              && (buffer.get(position) != QUOTE || (position + 1 < limit && buffer.get(position + 1) == QUOTE))) {
+            position += buffer.get(position) == QUOTE ? 2 : 1;
+          }
+          end = position;
+          // Skips the closing quote, anything up to the delimiter is ignored.
+          while (position < limit && !isDelimiter(buffer.get(position))) {
+            position++;
+          }
+        } else {
+          while (position < limit && !isDelimiter(buffer.get(position))) {
+            position++;
+          }
+          // A carriage return only ends the row right before a line feed, elsewhere it's data.
+          boolean crlf = position < limit && buffer.get(position) == LF;
+          end = crlf && position > start && buffer.get(position - 1) == CR ? position - 1 : position;
+        }
+        row.addField(start, end, quoted);
+
+        if (position >= limit || buffer.get(position) == LF) {
+          endOfRow = true;
+        }
+        position++;
+      }
+
+      // An empty line is skipped, a line of just "" is a row with one empty field.
+      if (row.size() > 1 || !row.isEmpty(0) || row.isQuoted(0)) {
+        handler.row(row);
+      }
+    }
+  }
+
+  /**
+   * Cuts the buffer into about the given number of chunks, each ending after a line break outside of
+   * quotes. Finding the boundaries takes one pass over the bytes looking only at quotes, delimiters
+   * and line breaks. Like {@link #read}, only a quote starting a field opens a quoted field, others
+   * are data.
+   */
+  public static List<ByteBuffer> split(ByteBuffer buffer, int chunks) {
+    List<ByteBuffer> slices = new ArrayList<>();
+    int limit = buffer.limit();
+    int chunkSize = Math.max(1, (limit - buffer.position()) / Math.max(1, chunks));
+
+    int start = buffer.position();
+    boolean inQuotes = false;
+    boolean fieldStart = true;
+    for (int position = start; position < limit; position++) {
+      byte b = buffer.get(position);
+      if (inQuotes) {
+        if (b == QUOTE) {
+          // A doubled quote stays in the field, a single one closes it.
+          if (position + 1 < limit && buffer.get(position + 1) == QUOTE) {
+            position++;
+          } else {
+            inQuotes = false;
+          }
+        }
+        continue;
+      }
+
+      if (b == QUOTE && fieldStart) {
+        inQuotes = true;
+      } else if (b == LF && position + 1 - start >= chunkSize) {
+        slices.add(slice(buffer, start, position + 1));
+        start = position + 1;
+      }
+      fieldStart = isDelimiter(b);
+    }
+    if (start < limit) {
+      slices.add(slice(buffer, start, limit));
+    }
+    return slices;
+  }
+
+  /** Maps a file read only, its pages are loaded on demand instead of copied to the heap. */
+  public static ByteBuffer map(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+  }
+
+  /**
+   * Opens a file of the web app, mapped when the container serves it from disk and read into the
+   * heap otherwise.
+   */
+  public static ByteBuffer open(ServletContext context, String path) throws IOException {
+    String realPath = context.getRealPath(path);
+    if (realPath != null && Files.isRegularFile(Paths.get(realPath))) {
+      return map(Paths.get(realPath));
+    }
+
+    try (InputStream in = context.getResourceAsStream(path)) {
+      if (in == null) {
+        throw new FileNotFoundException(path);
+      }
+      return readFully(in);
+    }
+  }
+
+  /** Reads a stream into a buffer, for resources which aren't plain files. */
+  public static ByteBuffer readFully(InputStream in) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] chunk = new byte[64 * 1024];
+    int read;
+    while ((read = in.read(chunk)) != -1) {
+      bytes.write(chunk, 0, read);
+    }
+    return ByteBuffer.wrap(bytes.toByteArray());
+  }
+
+  private static boolean isDelimiter(byte b) {
+    return b == COMMA || b == LF;
+  }
+
+  private static ByteBuffer slice(ByteBuffer buffer, int start, int end) {
+    ByteBuffer slice = buffer.duplicate();
+    slice.limit(end).position(start);
+    return slice;
+  }
+}
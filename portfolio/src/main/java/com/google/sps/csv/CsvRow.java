@@ -0,0 +1,186 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.csv;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The current row of a {@link CsvReader}, as offsets of its fields into the buffer being read.
+ * Numbers are parsed from the bytes directly, only {@link #getString} allocates. The reader reuses
+ * the row, so it must not be kept past the handler call.
+ */
+public final class CsvRow {
+  // 2^53, every long below it converts to a double exactly.
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+    1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  private final ByteBuffer buffer;
+  private int[] starts = new int[16];
+  private int[] ends = new int[16];
+  private boolean[] quoted = new boolean[16];
+  private int fields;
+
+  CsvRow(ByteBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  void clear() {
+    fields = 0;
+  }
+
+  // Quoted fields are added without their surrounding quotes.
+  void addField(int start, int end, boolean isQuoted) {
+    if (fields == starts.length) {
+      starts = Arrays.copyOf(starts, fields * 2);
+      ends = Arrays.copyOf(ends, fields * 2);
+      quoted = Arrays.copyOf(quoted, fields * 2);
+    }
+    starts[fields] = start;
+    ends[fields] = end;
+    quoted[fields] = isQuoted;
+    fields++;
+  }
+
+  public int size() {
+    return fields;
+  }
+
+  public boolean isEmpty(int column) {
+    return starts[checked(column)] == ends[column];
+  }
+
+  public int getInt(int column) {
+    long value = getLong(column);
+    if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+      throw new NumberFormatException("Column " + column + " is out of the int range: " + getString(column));
+    }
+    return (int) value;
+  }
+
+  public long getLong(int column) {
+    int position = starts[checked(column)];
+    int end = ends[column];
+    boolean negative = position < end && buffer.get(position) == '-';
+    if (negative || (position < end && buffer.get(position) == '+')) {
+      position++;
+    }
+    if (position == end) {
+      throw new NumberFormatException("Column " + column + " isn't a number: " + getString(column));
+    }
+
+    // Accumulated as a negative number, which reaches Long.MIN_VALUE too.
+    long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+    long value = 0;
+    for (; position < end; position++) {
+      int digit = buffer.get(position) - '0';
+      if (digit < 0 || digit > 9 || value < (limit + digit) / 10) {
+        throw new NumberFormatException("Column " + column + " isn't a number: " + getString(column));
+      }
+      value = value * 10 - digit;
+    }
+    return negative ? value : -value;
+  }
+
+  /**
+   * Parses plain decimals like -3.009037274 from the bytes. The quotient of two exactly representable
+   * doubles is correctly rounded, so the result equals {@link Double#parseDouble} whenever the digits
+   * fit in 53 bits and the fraction in 22 digits. Anything else falls back to it.
+   */
+  public double getDouble(int column) {
+    int position = starts[checked(column)];
+    int end = ends[column];
+    boolean negative = position < end && buffer.get(position) == '-';
+    if (negative || (position < end && buffer.get(position) == '+')) {
+      position++;
+    }
+
+    long mantissa = 0;
+    int digits = 0;
+    int fractionDigits = -1;
+    for (; position < end; position++) {
+      byte b = buffer.get(position);
+      if (b == '.' && fractionDigits < 0) {
+        fractionDigits = 0;
+        continue;
+      }
+      int digit = b - '0';
+      if (digit < 0 || digit > 9) {
+        return Double.parseDouble(getString(column));
+      }
+      mantissa = mantissa * 10 + digit;
+      digits++;
+      if (fractionDigits >= 0) {
+        fractionDigits++;
+      }
+      if (mantissa >= MAX_EXACT_MANTISSA || fractionDigits >= POWERS_OF_TEN.length) {
+        return Double.parseDouble(getString(column));
+      }
+    }
+    if (digits == 0) {
+      return Double.parseDouble(getString(column));
+    }
+
+    double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+    return negative ? -value : value;
+  }
+
+  /** Decodes a field as UTF-8, turning the doubled quotes of a quoted field into single ones. */
+  public String getString(int column) {
+    ByteBuffer field = buffer.duplicate();
+    field.limit(ends[checked(column)]).position(starts[column]);
+    String value = StandardCharsets.UTF_8.decode(field).toString();
+    return quoted[column] ? value.replace("\"\"", "\"") : value;
+  }
+
+  /** Returns whether a field was quoted, its raw bytes may then hold doubled quotes. */
+  public boolean isQuoted(int column) {
+    return quoted[checked(column)];
+  }
+
+  /** Returns whether the raw bytes of a field are exactly the given ones, without decoding it. */
+  public boolean contentEquals(int column, byte[] value) {
+    int start = starts[checked(column)];
+    if (ends[column] - start != value.length) {
+      return false;
+    }
+    for (int i = 0; i < value.length; i++) {
+      if (buffer.get(start + i) != value[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Hashes the raw bytes of a field, consistent with {@link #contentEquals}. */
+  public int hash(int column) {
+    int hash = 1;
+    for (int position = starts[checked(column)]; position < ends[column]; position++) {
+      hash = 31 * hash + buffer.get(position);
+    }
+    return hash;
+  }
+
+  private int checked(int column) {
+    if (column < 0 || column >= fields) {
+      throw new IndexOutOfBoundsException("Row has " + fields + " columns, not " + (column + 1));
+    }
+    return column;
+  }
+}
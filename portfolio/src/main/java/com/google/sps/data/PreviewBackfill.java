@@ -0,0 +1,131 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import com.google.appengine.api.datastore.Cursor;
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.EntityNotFoundException;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.QueryResultList;
+import com.google.appengine.api.datastore.Transaction;
+import com.google.sps.classes.Comment;
+import com.google.sps.constants.Constants;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Adds the {@code preview} property to comments posted before it existed. Projections skip entities
+ * missing a projected property, so the preview view of the feed is only usable once every comment
+ * has one; until then {@link #isDone} is false and the full view should be served instead.
+ *
+ * <p>App Engine requests can't leave threads running, so the cron job of {@code
+ * PreviewBackfillServlet} calls {@link #step}, which rewrites one page of comments and stores a
+ * cursor to the next in a {@code Constants.BACKFILL_ENTITY} entity. Steps of different instances may
+ * repeat a page, which rewrites nothing.
+ */
+public final class PreviewBackfill {
+  private static final PreviewBackfill INSTANCE = new PreviewBackfill();
+
+  private static final int PAGE_SIZE = 50;
+  private static final Key PROGRESS_KEY = KeyFactory.createKey(Constants.BACKFILL_ENTITY, "comment-preview");
+
+  private volatile boolean done;
+  private final AtomicBoolean running = new AtomicBoolean();
+
+  private PreviewBackfill() {}
+
+  public static PreviewBackfill getInstance() {
+    return INSTANCE;
+  }
+
+  /** Returns whether every comment has a preview. Only reads Datastore until it does. */
+  public boolean isDone(DatastoreService dataStore) {
+    if (!done) {
+      done = Boolean.TRUE.equals(progress(dataStore).getProperty("done"));
+    }
+    return done;
+  }
+
+  /** Rewrites the next page of comments, unless done or already running on this instance. */
+  public void step(DatastoreService dataStore) {
+    if (done || !running.compareAndSet(false, true)) {
+      return;
+    }
+
+    try {
+      Entity progress = progress(dataStore);
+      if (Boolean.TRUE.equals(progress.getProperty("done"))) {
+        done = true;
+        return;
+      }
+
+      FetchOptions fetchOptions = FetchOptions.Builder.withLimit(PAGE_SIZE);
+      String cursor = (String) progress.getProperty("cursor");
+      if (cursor != null) {
+        fetchOptions.startCursor(Cursor.fromWebSafeString(cursor));
+      }
+      QueryResultList<Entity> comments =
+          dataStore.prepare(new Query(Constants.COMMENT_ENTITY)).asQueryResultList(fetchOptions);
+      for (Entity comment : comments) {
+        if (!comment.hasProperty("preview")) {
+          addPreview(dataStore, comment.getKey());
+        }
+      }
+
+      if (comments.size() < PAGE_SIZE) {
+        progress.setProperty("done", true);
+      } else {
+        progress.setUnindexedProperty("cursor", comments.getCursor().toWebSafeString());
+      }
+      dataStore.put(progress);
+    } catch (RuntimeException e) {
+      // The page is retried by the next step.
+      System.out.println(e);
+    } finally {
+      running.set(false);
+    }
+  }
+
+  // In a transaction, so a like rollup or reply written meanwhile isn't overwritten. A busy comment
+  // fails the step, which repeats the page.
+  private static void addPreview(DatastoreService dataStore, Key commentKey) {
+    Transaction txn = dataStore.beginTransaction();
+    try {
+      Entity comment = dataStore.get(txn, commentKey);
+      if (!comment.hasProperty("preview")) {
+        comment.setProperty("preview", Comment.preview((String) comment.getProperty("comment")));
+        dataStore.put(txn, comment);
+      }
+      txn.commit();
+    } catch (EntityNotFoundException e) {
+      // Deleted meanwhile, nothing to rewrite.
+    } finally {
+      if (txn.isActive()) {
+        txn.rollback();
+      }
+    }
+  }
+
+  private static Entity progress(DatastoreService dataStore) {
+    try {
+      return dataStore.get(PROGRESS_KEY);
+    } catch (EntityNotFoundException e) {
+      return new Entity(PROGRESS_KEY);
+    }
+  }
+}
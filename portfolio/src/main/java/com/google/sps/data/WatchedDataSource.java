@@ -0,0 +1,131 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import com.google.sps.csv.CsvReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.servlet.ServletContext;
+
+/**
+ * Data built from files of the web app which is rebuilt when they change, without a restart. The
+ * built value sits behind a volatile reference: readers take whatever is current and never wait,
+ * a rebuild swaps the new value in once it's complete.
+ *
+ * <p>App Engine requests can't leave threads running, so the files are checked at most once per
+ * interval by whichever request calls {@link #reloadIfChanged} after answering. Only that request
+ * rebuilds. A rebuild which fails keeps the previous value until the files change again. Files
+ * should be replaced by moving a complete new file over them, since they may be memory mapped.
+ */
+public final class WatchedDataSource<T> {
+
+  /** Builds the value from the contents of the files, in the order they were given. */
+  public interface Loader<T> {
+    T load(List<ByteBuffer> files) throws IOException;
+  }
+
+  private final ServletContext context;
+  private final List<String> paths;
+  private final Loader<T> loader;
+  private final long checkIntervalMillis;
+
+  private volatile Snapshot<T> current;
+  private volatile long nextCheck;
+  private final AtomicBoolean reloading = new AtomicBoolean();
+
+  /** Builds the first value right away, so a broken file fails the servlet at startup. */
+  public WatchedDataSource(ServletContext context, List<String> paths, long checkIntervalMillis,
+      Loader<T> loader) throws IOException {
+    this.context = context;
+    this.paths = paths;
+    this.loader = loader;
+    this.checkIntervalMillis = checkIntervalMillis;
+
+    long[] versions = versions();
+    current = new Snapshot<>(load(), versions);
+    nextCheck = System.currentTimeMillis() + checkIntervalMillis;
+  }
+
+  /** Returns the current value, never waiting for a rebuild. */
+  public T get() {
+    return current.value;
+  }
+
+  /** Rebuilds the value if the check interval passed and a file changed since the last build. */
+  public void reloadIfChanged() {
+    long now = System.currentTimeMillis();
+    if (now < nextCheck || !reloading.compareAndSet(false, true)) {
+      return;
+    }
+
+    try {
+      nextCheck = now + checkIntervalMillis;
+      long[] versions = versions();
+      if (Arrays.equals(versions, current.versions)) {
+        return;
+      }
+
+      try {
+        current = new Snapshot<>(load(), versions);
+      } catch (IOException | RuntimeException e) {
+        System.out.println(e);
+        current = new Snapshot<>(current.value, versions);
+      }
+    } catch (IOException e) {
+      System.out.println(e);
+    } finally {
+      reloading.set(false);
+    }
+  }
+
+  private T load() throws IOException {
+    List<ByteBuffer> files = new ArrayList<>();
+    for (String path : paths) {
+      files.add(CsvReader.open(context, path));
+    }
+    return loader.load(files);
+  }
+
+  // The modification time and size of every file, zero for resources which aren't plain files.
+  private long[] versions() throws IOException {
+    long[] versions = new long[paths.size() * 2];
+    for (int i = 0; i < paths.size(); i++) {
+      String realPath = context.getRealPath(paths.get(i));
+      if (realPath != null && Files.isRegularFile(Paths.get(realPath))) {
+        Path file = Paths.get(realPath);
+        versions[2 * i] = Files.getLastModifiedTime(file).toMillis();
+        versions[2 * i + 1] = Files.size(file);
+      }
+    }
+    return versions;
+  }
+
+  private static final class Snapshot<T> {
+    private final T value;
+    private final long[] versions;
+
+    private Snapshot(T value, long[] versions) {
+      this.value = value;
+      this.versions = versions;
+    }
+  }
+}
@@ -0,0 +1,286 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.events;
+
+import com.google.appengine.api.memcache.Expiration;
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.classes.CommentEvent;
+import com.google.sps.json.Json;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Delivers comment events to long-polling clients of every instance. Events are numbered by a
+ * memcache counter and kept in memcache under their sequence, so a poll sees what any instance
+ * published.
+ *
+ * <p>Each instance keeps one log of the recent events for all of its polls. Events published here
+ * are added right away, and while polls are waiting one of them reads the events of the other
+ * instances from memcache every {@code POLL_INTERVAL_MILLIS} for all of them. Polls waiting on the
+ * same sequence share one rendered payload. An event which was numbered but isn't stored yet is
+ * waited for up to {@code GAP_WAIT_MILLIS}, only then is it given up as lost. Only the last
+ * {@code MAX_EVENTS} events can be caught up with; a client which fell further behind, or missed a
+ * lost event, is told to reload the feed.
+ */
+public final class CommentEventDispatcher {
+  private static final CommentEventDispatcher INSTANCE = new CommentEventDispatcher();
+
+  private static final int MAX_EVENTS = 256;
+  private static final int EVENT_EXPIRATION_SECONDS = 600;
+  private static final long POLL_INTERVAL_MILLIS = 1000;
+  // A publisher stores its event right after numbering it, a longer gap means it failed.
+  private static final long GAP_WAIT_MILLIS = 3000;
+  private static final String SEQUENCE_KEY = "comment-events-sequence";
+  private static final String EVENT_KEY_PREFIX = "comment-event-";
+
+  private final MemcacheService memcache = MemcacheServiceFactory.getMemcacheService();
+
+  // Guards the fields below, waiting polls are signalled whenever the log changes.
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition changed = lock.newCondition();
+  // The rendered events by sequence, up to head without gaps and possibly some after it.
+  private final NavigableMap<Long, String> recent = new TreeMap<>();
+  // Every event up to head is in the log or was before base, -1 until the first read of memcache.
+  private long head = -1;
+  // Clients which saw less than base may have missed an event.
+  private long base = -1;
+  private long latestSequence = -1;
+  private long lastRefresh;
+  private long gapSince;
+  private boolean refreshing;
+  private long renderedAfter = -1;
+  private long renderedHead = -1;
+  private String renderedPayload;
+
+  private CommentEventDispatcher() {}
+
+  public static CommentEventDispatcher getInstance() {
+    return INSTANCE;
+  }
+
+  /** Records an event and wakes the polls waiting on this instance. */
+  public void publish(CommentEvent event) {
+    // The counter starts from the clock, so one restarted after an eviction is never behind a
+    // sequence a client already saw, and clients resync instead of missing events.
+    Long sequence = memcache.increment(SEQUENCE_KEY, 1, System.currentTimeMillis() * 1000);
+    if (sequence == null) {
+      System.out.println("Could not number comment event " + event.getType() + " " + event.getId());
+      return;
+    }
+    event.setSequence(sequence);
+    String json = Json.GSON.toJson(event);
+    memcache.put(eventKey(sequence), json, Expiration.byDeltaSeconds(EVENT_EXPIRATION_SECONDS));
+
+    lock.lock();
+    try {
+      if (head >= 0) {
+        add(sequence, json);
+      }
+      changed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the payload of the events after {@code after} as soon as there are some, or the payload
+   * without events once {@code timeoutMillis} passed, e.g. {"sequence": 4, "resync": false,
+   * "events": [...]}. A negative {@code after} only asks for the current sequence.
+   */
+  public String await(long after, long timeoutMillis) throws InterruptedException {
+    long start = System.currentTimeMillis();
+    long deadline = start + timeoutMillis;
+    lock.lock();
+    try {
+      while (true) {
+        long now = System.currentTimeMillis();
+        if (head >= 0) {
+          // A counter behind the client was reset. Only trusted from a read made after the poll
+          // started, the client may have seen an event this instance didn't read yet.
+          boolean counterReset = lastRefresh >= start && after > latestSequence;
+          if (after < 0) {
+            return new Batch(head, false, new ArrayList<String>()).toJson();
+          }
+          if (after < base || counterReset) {
+            return new Batch(head, true, new ArrayList<String>()).toJson();
+          }
+          if (after < head) {
+            return render(after);
+          }
+        }
+        if (now >= deadline) {
+          return new Batch(after, false, new ArrayList<String>()).toJson();
+        }
+
+        long nextRefresh = lastRefresh + POLL_INTERVAL_MILLIS;
+        if (!refreshing && now >= nextRefresh) {
+          refresh();
+        } else {
+          long until = refreshing ? deadline : Math.min(deadline, nextRefresh);
+          changed.await(Math.max(1, until - now), TimeUnit.MILLISECONDS);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Reads the events of the other instances for every waiting poll. Called holding the lock, which
+  // is released during the memcache calls, and never by two polls at once.
+  private void refresh() {
+    refreshing = true;
+    long from = head;
+    Set<Long> known = new HashSet<>(recent.tailMap(head, false).keySet());
+    lock.unlock();
+
+    long sequence = -1;
+    List<Long> missing = new ArrayList<>();
+    Map<String, Object> stored = new HashMap<>();
+    try {
+      Object current = memcache.get(SEQUENCE_KEY);
+      sequence = current == null ? 0 : (Long) current;
+      if (from >= 0 && sequence > from && sequence - from <= MAX_EVENTS) {
+        List<String> keys = new ArrayList<>();
+        for (long next = from + 1; next <= sequence; next++) {
+          if (!known.contains(next)) {
+            missing.add(next);
+            keys.add(eventKey(next));
+          }
+        }
+        stored = memcache.getAll(keys);
+      }
+    } catch (RuntimeException e) {
+      // Tried again on the next interval.
+      System.out.println(e);
+    } finally {
+      lock.lock();
+      refreshing = false;
+    }
+
+    long now = System.currentTimeMillis();
+    lastRefresh = now;
+    if (sequence < 0) {
+      changed.signalAll();
+      return;
+    }
+    latestSequence = sequence;
+    if (head < 0 || sequence < head || sequence - head > MAX_EVENTS) {
+      // Nothing to catch up with yet, or too much: clients from before reload the feed.
+      recent.clear();
+      head = sequence;
+      base = sequence;
+      gapSince = 0;
+    } else {
+      for (long next : missing) {
+        String event = (String) stored.get(eventKey(next));
+        if (event != null) {
+          add(next, event);
+        }
+      }
+      if (head >= sequence) {
+        gapSince = 0;
+      } else if (gapSince == 0) {
+        gapSince = now;
+      } else if (now - gapSince > GAP_WAIT_MILLIS) {
+        // The next event is lost, clients which needed it reload and the others carry on.
+        head++;
+        base = head;
+        recent.headMap(head, true).clear();
+        gapSince = 0;
+        advance();
+      }
+    }
+    changed.signalAll();
+  }
+
+  // Adds an event to the log and moves head past the events which are now contiguous.
+  private void add(long sequence, String event) {
+    if (sequence <= head) {
+      return;
+    }
+    recent.put(sequence, event);
+    advance();
+    while (recent.size() > MAX_EVENTS) {
+      base = Math.max(base, recent.pollFirstEntry().getKey());
+    }
+  }
+
+  private void advance() {
+    while (recent.containsKey(head + 1)) {
+      head++;
+      gapSince = 0;
+    }
+  }
+
+  // Every poll waiting on the same sequence gets the same payload, rendered once.
+  private String render(long after) {
+    if (after != renderedAfter || head != renderedHead) {
+      List<String> events = new ArrayList<>(recent.subMap(after, false, head, true).values());
+      renderedPayload = new Batch(head, false, events).toJson();
+      renderedAfter = after;
+      renderedHead = head;
+    }
+    return renderedPayload;
+  }
+
+  private static String eventKey(long sequence) {
+    return EVENT_KEY_PREFIX + sequence;
+  }
+
+  private static final class Batch {
+    private final long sequence;
+    private final boolean resync;
+    // Rendered once by the publisher.
+    private final List<String> events;
+
+    private Batch(long sequence, boolean resync, List<String> events) {
+      this.sequence = sequence;
+      this.resync = resync;
+      this.events = events;
+    }
+
+    private String toJson() {
+      StringWriter payload = new StringWriter();
+      try (JsonWriter out = Json.GSON.newJsonWriter(payload)) {
+        out.beginObject();
+        out.name("sequence").value(sequence);
+        out.name("resync").value(resync);
+        out.name("events").beginArray();
+        for (String event : events) {
+          out.jsonValue(event);
+        }
+        out.endArray();
+        out.endObject();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return payload.toString();
+    }
+  }
+}
@@ -0,0 +1,50 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.geo;
+
+/** Points of a grid merged for a zoom level, placed at their centroid. */
+public final class Cluster {
+  private double latSum;
+  private double lngSum;
+  private int count;
+  private final int firstPoint;
+
+  Cluster(int firstPoint) {
+    this.firstPoint = firstPoint;
+  }
+
+  void add(double lat, double lng) {
+    latSum += lat;
+    lngSum += lng;
+    count++;
+  }
+
+  public double lat() {
+    return latSum / count;
+  }
+
+  public double lng() {
+    return lngSum / count;
+  }
+
+  public int count() {
+    return count;
+  }
+
+  /** The index of a point of the cluster, the only one when the count is 1. */
+  public int firstPoint() {
+    return firstPoint;
+  }
+}
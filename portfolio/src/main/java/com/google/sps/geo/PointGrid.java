@@ -0,0 +1,141 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.geo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * A uniform grid over lat/lng for viewport queries. Points are stored sorted by cell in primitive
+ * arrays with the offset of every cell, so a query only looks at the points of the cells the
+ * viewport overlaps. Points are identified by their index in the arrays the grid was built from.
+ */
+public final class PointGrid {
+  // Clusters are about this many pixels wide on 256 pixel map tiles.
+  private static final int CLUSTER_PIXELS = 64;
+  // Deepest zoom level of Google Maps, larger zooms would shrink the cluster grid to nothing.
+  public static final int MAX_ZOOM = 22;
+
+  private final double cellDegrees;
+  private final int columns;
+  private final int rows;
+  private final int[] cellStarts;
+  private final int[] points;
+  private final double[] lats;
+  private final double[] lngs;
+
+  public PointGrid(double[] lats, double[] lngs, double cellDegrees) {
+    this.cellDegrees = cellDegrees;
+    columns = (int) Math.ceil(360 / cellDegrees);
+    rows = (int) Math.ceil(180 / cellDegrees);
+
+    // Counting sort of the points by cell.
+    int[] cells = new int[lats.length];
+    cellStarts = new int[columns * rows + 1];
+    for (int point = 0; point < lats.length; point++) {
+      cells[point] = row(lats[point]) * columns + column(lngs[point]);
+      cellStarts[cells[point] + 1]++;
+    }
+    for (int cell = 0; cell < columns * rows; cell++) {
+      cellStarts[cell + 1] += cellStarts[cell];
+    }
+
+    int[] next = cellStarts.clone();
+    points = new int[lats.length];
+    this.lats = new double[lats.length];
+    this.lngs = new double[lats.length];
+    for (int point = 0; point < lats.length; point++) {
+      int slot = next[cells[point]]++;
+      points[slot] = point;
+      this.lats[slot] = lats[point];
+      this.lngs[slot] = lngs[point];
+    }
+  }
+
+  public int size() {
+    return points.length;
+  }
+
+  /** Calls the visitor with the index of every point in the box. */
+  public void query(BoundingBox box, IntConsumer visitor) {
+    forEachSlot(box, slot -> visitor.accept(points[slot]));
+  }
+
+  /**
+   * Merges the points in the box which are close at a zoom level, where the world is 256 * 2^zoom
+   * pixels wide. The merging grid is in degrees, so clusters get flatter away from the equator.
+   *
+   * @throws IllegalArgumentException if the zoom is not between 0 and {@link #MAX_ZOOM}
+   */
+  public List<Cluster> cluster(BoundingBox box, int zoom) {
+    if (zoom < 0 || zoom > MAX_ZOOM) {
+      throw new IllegalArgumentException("Expected a zoom between 0 and " + MAX_ZOOM);
+    }
+    double clusterDegrees = 360.0 * CLUSTER_PIXELS / (256.0 * Math.pow(2, zoom));
+    long clusterColumns = (long) Math.ceil(360 / clusterDegrees);
+
+    Map<Long, Cluster> clusters = new HashMap<>();
+    forEachSlot(box, slot -> {
+      long row = (long) ((lats[slot] + 90) / clusterDegrees);
+      // The antimeridian joins the last column rather than the next row.
+      long column = Math.min(clusterColumns - 1, (long) ((lngs[slot] + 180) / clusterDegrees));
+      clusters.computeIfAbsent(row * clusterColumns + column, key -> new Cluster(points[slot]))
+          .add(lats[slot], lngs[slot]);
+    });
+    return new ArrayList<>(clusters.values());
+  }
+
+  private void forEachSlot(BoundingBox box, IntConsumer visitor) {
+    int firstRow = row(box.south);
+    int lastRow = row(box.north);
+    int firstColumn = column(box.west);
+    int lastColumn = column(box.east);
+    if (box.west <= box.east) {
+      visitColumns(box, firstRow, lastRow, firstColumn, lastColumn, visitor);
+    } else if (firstColumn > lastColumn) {
+      visitColumns(box, firstRow, lastRow, firstColumn, columns - 1, visitor);
+      visitColumns(box, firstRow, lastRow, 0, lastColumn, visitor);
+    } else {
+      // The box wraps around into the cell it starts in, which covers every column once.
+      visitColumns(box, firstRow, lastRow, 0, columns - 1, visitor);
+    }
+  }
+
+  private void visitColumns(BoundingBox box, int firstRow, int lastRow, int firstColumn, int lastColumn,
+      IntConsumer visitor) {
+    for (int row = firstRow; row <= lastRow; row++) {
+      for (int column = firstColumn; column <= lastColumn; column++) {
+        int cell = row * columns + column;
+        for (int slot = cellStarts[cell]; slot < cellStarts[cell + 1]; slot++) {
+          // Border cells stick out of the box.
+          if (box.contains(lats[slot], lngs[slot])) {
+            visitor.accept(slot);
+          }
+        }
+      }
+    }
+  }
+
+  private int row(double lat) {
+    return Math.min(rows - 1, Math.max(0, (int) ((lat + 90) / cellDegrees)));
+  }
+
+  private int column(double lng) {
+    return Math.min(columns - 1, Math.max(0, (int) ((lng + 180) / cellDegrees)));
+  }
+}
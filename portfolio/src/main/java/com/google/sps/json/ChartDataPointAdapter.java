@@ -0,0 +1,68 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.classes.ChartDataPoint;
+import java.io.IOException;
+
+/** Reads and writes a chart data point as {"year": 1900, "budget": 20, "patents": 2}. */
+final class ChartDataPointAdapter extends TypeAdapter<ChartDataPoint> {
+  @Override
+  public void write(JsonWriter out, ChartDataPoint point) throws IOException {
+    if (point == null) {
+      out.nullValue();
+      return;
+    }
+    out.beginObject();
+    out.name("year").value(point.year);
+    out.name("budget").value(point.budget);
+    out.name("patents").value(point.patents);
+    out.endObject();
+  }
+
+  @Override
+  public ChartDataPoint read(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    int year = 0;
+    int budget = 0;
+    int patents = 0;
+
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "year":
+          year = in.nextInt();
+          break;
+        case "budget":
+          budget = in.nextInt();
+          break;
+        case "patents":
+          patents = in.nextInt();
+          break;
+        default:
+          in.skipValue();
+      }
+    }
+    in.endObject();
+    return new ChartDataPoint(year, budget, patents);
+  }
+}
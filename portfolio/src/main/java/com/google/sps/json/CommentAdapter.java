@@ -0,0 +1,89 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.classes.Comment;
+import java.io.IOException;
+
+/** Reads and writes a comment with the same field names and order the reflective adapter used. */
+final class CommentAdapter extends TypeAdapter<Comment> {
+  @Override
+  public void write(JsonWriter out, Comment comment) throws IOException {
+    if (comment == null) {
+      out.nullValue();
+      return;
+    }
+    out.beginObject();
+    out.name("comment").value(comment.getComment());
+    out.name("user").value(comment.getUser());
+    out.name("size").value(comment.getSize());
+    out.name("timestamp").value(comment.getTimeStamp());
+    out.name("likes").value(comment.getLikes());
+    out.name("id").value(comment.getId());
+    // Left out when unknown, the writer skips null values.
+    out.name("replies").value(comment.getReplies());
+    out.endObject();
+  }
+
+  @Override
+  public Comment read(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    String comment = null;
+    String user = null;
+    long size = 0;
+    long timestamp = 0;
+    int likes = 0;
+    long id = 0;
+    Long replies = null;
+
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "comment":
+          comment = Json.nextString(in);
+          break;
+        case "user":
+          user = Json.nextString(in);
+          break;
+        case "size":
+          size = in.nextLong();
+          break;
+        case "timestamp":
+          timestamp = in.nextLong();
+          break;
+        case "likes":
+          likes = in.nextInt();
+          break;
+        case "id":
+          id = in.nextLong();
+          break;
+        case "replies":
+          replies = in.nextLong();
+          break;
+        default:
+          in.skipValue();
+      }
+    }
+    in.endObject();
+    return new Comment(comment, user, size, likes, timestamp, id, replies);
+  }
+}
@@ -0,0 +1,54 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.json;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.sps.classes.ChartDataPoint;
+import com.google.sps.classes.Comment;
+import com.google.sps.classes.LandingSite;
+import java.io.IOException;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * The serializer shared by every servlet. Gson is thread safe and caches its adapters, so building it
+ * once saves the reflective lookups a new instance repeats on its first calls. The classes sent on
+ * every request have hand-written streaming adapters instead of reflective ones.
+ */
+public final class Json {
+  public static final Gson GSON = new GsonBuilder()
+      .registerTypeAdapter(Comment.class, new CommentAdapter())
+      .registerTypeAdapter(ChartDataPoint.class, new ChartDataPointAdapter())
+      .registerTypeAdapter(LandingSite.class, new LandingSiteAdapter())
+      .create();
+
+  private Json() {}
+
+  // Reads a string which may be null, JsonReader.nextString() refuses null.
+  static String nextString(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    return in.nextString();
+  }
+
+  /** Writes src straight to the response instead of building the whole payload as a string first. */
+  public static void write(HttpServletResponse response, Object src) throws IOException {
+    GSON.toJson(src, src.getClass(), response.getWriter());
+  }
+}
@@ -0,0 +1,73 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.classes.LandingSite;
+import java.io.IOException;
+
+/** Reads and writes a landing site as {"lat": 38.44, "lng": -122.71, "missionNum": "13", "description": "..."}. */
+final class LandingSiteAdapter extends TypeAdapter<LandingSite> {
+  @Override
+  public void write(JsonWriter out, LandingSite site) throws IOException {
+    if (site == null) {
+      out.nullValue();
+      return;
+    }
+    out.beginObject();
+    out.name("lat").value(site.lat);
+    out.name("lng").value(site.lng);
+    out.name("missionNum").value(site.missionNum);
+    out.name("description").value(site.description);
+    out.endObject();
+  }
+
+  @Override
+  public LandingSite read(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    double lat = 0;
+    double lng = 0;
+    String missionNum = null;
+    String description = null;
+
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "lat":
+          lat = in.nextDouble();
+          break;
+        case "lng":
+          lng = in.nextDouble();
+          break;
+        case "missionNum":
+          missionNum = Json.nextString(in);
+          break;
+        case "description":
+          description = Json.nextString(in);
+          break;
+        default:
+          in.skipValue();
+      }
+    }
+    in.endObject();
+    return new LandingSite(lat, lng, missionNum, description);
+  }
+}
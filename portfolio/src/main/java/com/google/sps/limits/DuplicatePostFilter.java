@@ -0,0 +1,81 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.limits;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers what every user posted for {@code windowMillis} so a burst of the same comment, e.g. a
+ * form submitted several times, is only stored once. Posts are remembered by a hash of their user and
+ * text, and at most {@code maxPosts} of them; past that the oldest is forgotten.
+ */
+public final class DuplicatePostFilter {
+  private final long windowMillis;
+  private final Map<String, Long> postedAt;
+
+  public DuplicatePostFilter(long windowMillis, int maxPosts) {
+    this.windowMillis = windowMillis;
+    this.postedAt = new LinkedHashMap<String, Long>(16, 0.75f, false) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+        return size() > maxPosts;
+      }
+    };
+  }
+
+  /**
+   * Returns true the first time a user posts a text within the window, and remembers the post. A
+   * post which then fails to be stored has to be {@link #forget forgotten}, so a retry isn't dropped.
+   */
+  public boolean isFirst(String user, String text) {
+    long now = System.currentTimeMillis();
+    String key = key(user, text);
+    synchronized (postedAt) {
+      Long previous = postedAt.get(key);
+      if (previous != null && now - previous < windowMillis) {
+        return false;
+      }
+      // Removed first so the post moves to the end of the insertion order.
+      postedAt.remove(key);
+      postedAt.put(key, now);
+      return true;
+    }
+  }
+
+  /** Forgets a post which wasn't stored. */
+  public void forget(String user, String text) {
+    String key = key(user, text);
+    synchronized (postedAt) {
+      postedAt.remove(key);
+    }
+  }
+
+  private static String key(String user, String text) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(String.valueOf(user).getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      digest.update(text.getBytes(StandardCharsets.UTF_8));
+      return Base64.getEncoder().encodeToString(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
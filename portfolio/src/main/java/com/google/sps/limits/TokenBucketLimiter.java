@@ -0,0 +1,91 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.limits;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Token bucket per key, e.g. per user or per IP. Every bucket holds up to {@code capacity} tokens and
+ * gets one back every {@code refillMillis}. At most {@code maxKeys} buckets are tracked; past that the
+ * least recently used one is dropped, which only lets its key start over with a full bucket.
+ */
+public final class TokenBucketLimiter {
+  private final int capacity;
+  private final long refillMillis;
+  private final Map<String, Bucket> buckets;
+
+  public TokenBucketLimiter(int capacity, long refillMillis, int maxKeys) {
+    this.capacity = capacity;
+    this.refillMillis = refillMillis;
+    this.buckets = new LinkedHashMap<String, Bucket>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+        return size() > maxKeys;
+      }
+    };
+  }
+
+  /**
+   * Takes a token from the bucket of every key, e.g. a user and their IP, and returns true, or takes
+   * none and returns false if one of them is empty.
+   */
+  public boolean tryAcquire(String... keys) {
+    long now = System.currentTimeMillis();
+    synchronized (buckets) {
+      List<Bucket> acquired = new ArrayList<>();
+      for (String key : keys) {
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+          bucket = new Bucket(capacity, now);
+          buckets.put(key, bucket);
+        }
+        refill(bucket, now);
+        if (bucket.tokens == 0) {
+          return false;
+        }
+        acquired.add(bucket);
+      }
+
+      for (Bucket bucket : acquired) {
+        bucket.tokens--;
+      }
+      return true;
+    }
+  }
+
+  private void refill(Bucket bucket, long now) {
+    long refilled = (now - bucket.updatedAt) / refillMillis;
+    if (refilled > 0) {
+      bucket.tokens = (int) Math.min(capacity, bucket.tokens + refilled);
+      bucket.updatedAt += refilled * refillMillis;
+    }
+    if (bucket.tokens == capacity) {
+      bucket.updatedAt = now;
+    }
+  }
+
+  private static final class Bucket {
+    private int tokens;
+    private long updatedAt;
+
+    private Bucket(int tokens, long updatedAt) {
+      this.tokens = tokens;
+      this.updatedAt = updatedAt;
+    }
+  }
+}
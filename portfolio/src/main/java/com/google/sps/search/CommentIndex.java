@@ -0,0 +1,287 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.sps.search;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Query;
+import com.google.sps.classes.Comment;
+import com.google.sps.constants.Constants;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index from the words of every comment to the comments containing them. Every
+ * comment gets a dense document number when it's indexed, and the lists hold those numbers
+ * compressed, see {@link PostingList}. It's built from Datastore the first time it's searched and
+ * kept up to date by the servlets writing comments. Writes made on other instances are picked up when
+ * the index is rebuilt every {@code REBUILD_INTERVAL_MILLIS}, which also drops removed comments from
+ * the lists. One request per instance rebuilds while the others keep searching the previous index,
+ * and comments added, removed or liked during the scan are replayed onto the new one.
+ */
+public final class CommentIndex {
+  private static final CommentIndex INSTANCE = new CommentIndex();
+
+  private static final long REBUILD_INTERVAL_MILLIS = 15 * 60 * 1000;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Lock rebuildLock = new ReentrantLock();
+  private Index index = new Index();
+  private long builtAt;
+  // Changes made while a rebuild scans Datastore, null when none is running.
+  private List<Change> changesDuringRebuild;
+
+  private CommentIndex() {}
+
+  public static CommentIndex getInstance() {
+    return INSTANCE;
+  }
+
+  /** Indexes every comment in Datastore, if the index is missing or stale. */
+  public void ensureBuilt(DatastoreService dataStore) {
+    long built = builtAt();
+    if (System.currentTimeMillis() - built < REBUILD_INTERVAL_MILLIS) {
+      return;
+    }
+
+    // Without an index there is nothing to search meanwhile, so the first build is waited for.
+    if (built == 0) {
+      rebuildLock.lock();
+    } else if (!rebuildLock.tryLock()) {
+      return;
+    }
+    try {
+      if (builtAt() == built) {
+        rebuild(dataStore);
+      }
+    } finally {
+      rebuildLock.unlock();
+    }
+  }
+
+  private long builtAt() {
+    lock.readLock().lock();
+    try {
+      return builtAt;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void rebuild(DatastoreService dataStore) {
+    lock.writeLock().lock();
+    try {
+      changesDuringRebuild = new ArrayList<>();
+    } finally {
+      lock.writeLock().unlock();
+    }
+
+    try {
+      // Numbers are given in scan order, so every list is built by appending.
+      Index built = new Index();
+      for (Entity entity : dataStore.prepare(new Query(Constants.COMMENT_ENTITY)).asIterable()) {
+        Comment comment = new Comment(entity);
+        built.add(comment.getId(), comment.getLikes(), tokenize(comment.getComment()));
+      }
+
+      lock.writeLock().lock();
+      try {
+        // Likes counted by the scan may be counted again here, it only shifts the ranking slightly.
+        for (Change change : changesDuringRebuild) {
+          change.applyTo(built);
+        }
+        index = built;
+        builtAt = System.currentTimeMillis();
+      } finally {
+        lock.writeLock().unlock();
+      }
+    } finally {
+      // Also dropped when the scan failed, the next rebuild starts over.
+      lock.writeLock().lock();
+      try {
+        changesDuringRebuild = null;
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+  }
+
+  /** Indexes a new comment. */
+  public void add(Comment comment) {
+    record(new Change(comment.getId(), comment.getLikes(), tokenize(comment.getComment()), false));
+  }
+
+  /** Drops a deleted comment. */
+  public void remove(long id) {
+    record(new Change(id, 0, null, true));
+  }
+
+  /** Updates the likes a comment is ranked by. */
+  public void addLikes(long id, long likes) {
+    record(new Change(id, likes, null, false));
+  }
+
+  private void record(Change change) {
+    lock.writeLock().lock();
+    try {
+      change.applyTo(index);
+      if (changesDuringRebuild != null) {
+        changesDuringRebuild.add(change);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Returns the ids of the comments containing every word of the query, most liked first. */
+  public List<Long> search(String query, int limit) {
+    Set<String> terms = tokenize(query);
+    if (terms.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    lock.readLock().lock();
+    try {
+      return index.search(terms, limit);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  static Set<String> tokenize(String text) {
+    Set<String> terms = new LinkedHashSet<>();
+    for (String term : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+      if (!term.isEmpty()) {
+        terms.add(term);
+      }
+    }
+    return terms;
+  }
+
+  // The lists and documents of one build, guarded by the lock of the CommentIndex.
+  private static final class Index {
+    private final Map<String, PostingList> postings = new HashMap<>();
+    // By document number, null once removed.
+    private final List<Document> documents = new ArrayList<>();
+    private final Map<Long, Integer> numbers = new HashMap<>();
+
+    private void add(long id, long likes, Set<String> terms) {
+      if (numbers.containsKey(id)) {
+        return;
+      }
+      int number = documents.size();
+      numbers.put(id, number);
+      documents.add(new Document(id, likes));
+      for (String term : terms) {
+        postings.computeIfAbsent(term, key -> new PostingList()).add(number);
+      }
+    }
+
+    // The lists keep the number, search skips it until the next rebuild.
+    private void remove(long id) {
+      Integer number = numbers.remove(id);
+      if (number != null) {
+        documents.set(number, null);
+      }
+    }
+
+    private void addLikes(long id, long likes) {
+      Integer number = numbers.get(id);
+      if (number != null) {
+        documents.get(number).likes += likes;
+      }
+    }
+
+    private List<Long> search(Set<String> terms, int limit) {
+      // Intersect starting from the shortest list so every step only gets smaller.
+      List<PostingList> lists = new ArrayList<>();
+      for (String term : terms) {
+        PostingList list = postings.get(term);
+        if (list == null) {
+          return new ArrayList<>();
+        }
+        lists.add(list);
+      }
+      lists.sort(Comparator.comparingInt(PostingList::size));
+
+      int[] matches = lists.get(0).toArray();
+      int size = matches.length;
+      for (int i = 1; i < lists.size() && size > 0; i++) {
+        size = lists.get(i).intersect(matches, size);
+      }
+
+      List<Document> found = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        Document document = documents.get(matches[i]);
+        if (document != null) {
+          found.add(document);
+        }
+      }
+      found.sort(Comparator.comparingLong((Document document) -> document.likes).reversed());
+
+      List<Long> ids = new ArrayList<>();
+      for (Document document : found.subList(0, Math.min(limit, found.size()))) {
+        ids.add(document.id);
+      }
+      return ids;
+    }
+  }
+
+  // A comment added when terms is set, removed, or otherwise liked.
+  private static final class Change {
+    private final long id;
+    private final long likes;
+    private final Set<String> terms;
+    private final boolean removed;
+
+    private Change(long id, long likes, Set<String> terms, boolean removed) {
+      this.id = id;
+      this.likes = likes;
+      this.terms = terms;
+      this.removed = removed;
+    }
+
+    private void applyTo(Index index) {
+      if (terms != null) {
+        index.add(id, likes, terms);
+      } else if (removed) {
+        index.remove(id);
+      } else {
+        index.addLikes(id, likes);
+      }
+    }
+  }
+
+  private static final class Document {
+    private final long id;
+    private long likes;
+
+    private Document(long id, long likes) {
+      this.id = id;
+      this.likes = likes;
+    }
+  }
+}
@@ -0,0 +1,106 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.search;
+
+import java.util.Arrays;
+
+/**
+ * Sorted set of document numbers stored as varint encoded gaps. {@link CommentIndex} numbers the
+ * comments densely in the order they're indexed, so gaps are small, most postings take one byte, and
+ * a new document is always appended at the end. Removed documents stay in the list until the next
+ * rebuild. Not thread safe, {@link CommentIndex} guards it.
+ */
+final class PostingList {
+  private byte[] data = new byte[8];
+  private int length;
+  private int size;
+  private int last;
+
+  int size() {
+    return size;
+  }
+
+  /** Appends a document, which must be greater than every document already in the list. */
+  void add(int doc) {
+    if (size > 0 && doc <= last) {
+      throw new IllegalArgumentException("Expected a document after " + last + ", got " + doc);
+    }
+
+    int gap = size == 0 ? doc : doc - last;
+    if (length + 5 > data.length) {
+      data = Arrays.copyOf(data, data.length * 2);
+    }
+    while ((gap & ~0x7f) != 0) {
+      data[length++] = (byte) ((gap & 0x7f) | 0x80);
+      gap >>>= 7;
+    }
+    data[length++] = (byte) gap;
+    last = doc;
+    size++;
+  }
+
+  /** Returns the documents in order. */
+  int[] toArray() {
+    int[] docs = new int[size];
+    Decoder decoder = new Decoder();
+    for (int i = 0; i < size; i++) {
+      docs[i] = decoder.next();
+    }
+    return docs;
+  }
+
+  /**
+   * Keeps the first {@code count} documents of {@code matches}, which must be sorted, that are also
+   * in this list and returns how many are left. The list is decoded once, front to back.
+   */
+  int intersect(int[] matches, int count) {
+    Decoder decoder = new Decoder();
+    int kept = 0;
+    int decoded = 0;
+    int doc = -1;
+    for (int i = 0; i < count; i++) {
+      while (doc < matches[i] && decoded < size) {
+        doc = decoder.next();
+        decoded++;
+      }
+      if (doc == matches[i]) {
+        matches[kept++] = matches[i];
+      } else if (doc < matches[i]) {
+        // The list ran out.
+        break;
+      }
+    }
+    return kept;
+  }
+
+  private final class Decoder {
+    private int position;
+    private int doc;
+
+    private int next() {
+      int gap = 0;
+      for (int shift = 0; ; shift += 7) {
+        byte b = data[position++];
+        gap |= (b & 0x7f) << shift;
+        if ((b & 0x80) == 0) {
+          break;
+        }
+      }
+      // The first gap is the document itself.
+      doc += gap;
+      return doc;
+    }
+  }
+}
@@ -0,0 +1,149 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.sps.servlets;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.gson.JsonParseException;
+import com.google.sps.cache.CommentFeedCache;
+import com.google.sps.classes.BatchResult;
+import com.google.sps.classes.CommentEvent;
+import com.google.sps.constants.Constants;
+import com.google.sps.counters.ShardedLikeCounter;
+import com.google.sps.counters.WriteBehindLikeBuffer;
+import com.google.sps.events.CommentEventDispatcher;
+import com.google.sps.json.Json;
+import com.google.sps.search.CommentIndex;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/** Deletes or likes many comments in one round trip, e.g. {"action": "delete", "ids": [1, 2]} */
+@WebServlet("/comment/batch")
+public class BatchServlet extends HttpServlet {
+  private static final String DELETE_ACTION = "delete";
+  private static final String LIKE_ACTION = "like";
+  // Datastore batch calls accept up to 500 keys, the comments of a batch are looked up in one.
+  // Their shards and replies are many more keys and get split by ShardedLikeCounter.
+  private static final int MAX_BATCH_SIZE = 500;
+
+  private final DatastoreService dataStore = DatastoreServiceFactory.getDatastoreService();
+  private final CommentFeedCache feedCache = CommentFeedCache.getInstance();
+  private final ShardedLikeCounter likeCounter = new ShardedLikeCounter(dataStore);
+  private final WriteBehindLikeBuffer likeBuffer = WriteBehindLikeBuffer.getInstance();
+  private final CommentEventDispatcher events = CommentEventDispatcher.getInstance();
+  private final CommentIndex searchIndex = CommentIndex.getInstance();
+  private final boolean writeBehind = Boolean.getBoolean(Constants.LIKES_WRITE_BEHIND_PROPERTY);
+
+  private static class BatchRequest {
+    private String action;
+    private List<Long> ids;
+  }
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    response.setContentType("application/json");
+
+    BatchRequest batch;
+    try {
+      batch = Json.GSON.fromJson(request.getReader(), BatchRequest.class);
+    } catch (JsonParseException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+
+    if (batch == null || batch.ids == null || batch.ids.size() > MAX_BATCH_SIZE
+        || !(DELETE_ACTION.equals(batch.action) || LIKE_ACTION.equals(batch.action))) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+          "Expected an action of delete or like and at most " + MAX_BATCH_SIZE + " ids");
+      return;
+    }
+    if (batch.ids.contains(null)) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Expected every id to be a number");
+      return;
+    }
+
+    // One get tells which comments exist for the per item results.
+    Set<Key> keys = new LinkedHashSet<>();
+    for (long id : batch.ids) {
+      keys.add(KeyFactory.createKey(Constants.COMMENT_ENTITY, id));
+    }
+    Map<Key, Entity> existing = dataStore.get(keys);
+
+    List<Long> foundIds = new ArrayList<>();
+    for (Key key : existing.keySet()) {
+      foundIds.add(key.getId());
+    }
+
+    String status;
+    boolean written;
+    if (DELETE_ACTION.equals(batch.action)) {
+      // Comments, shards and replies go in batch deletes, the stats in one update per batch.
+      List<Long> deleted = likeCounter.deleteComments(foundIds);
+      for (long id : deleted) {
+        events.publish(CommentEvent.delete(id));
+        searchIndex.remove(id);
+      }
+      written = !deleted.isEmpty();
+      status = BatchResult.DELETED;
+    } else {
+      // An id repeated in the batch counts as that many likes.
+      Map<Long, Long> likes = new HashMap<>();
+      for (long id : batch.ids) {
+        if (existing.containsKey(KeyFactory.createKey(Constants.COMMENT_ENTITY, id))) {
+          likes.merge(id, 1L, Long::sum);
+        }
+      }
+
+      if (writeBehind) {
+        for (Map.Entry<Long, Long> entry : likes.entrySet()) {
+          likeBuffer.add(entry.getKey(), entry.getValue());
+        }
+        likeBuffer.flushIfDue(likeCounter);
+      } else {
+        likeCounter.add(likes);
+      }
+      for (Map.Entry<Long, Long> entry : likes.entrySet()) {
+        events.publish(CommentEvent.like(entry.getKey(), entry.getValue()));
+        searchIndex.addLikes(entry.getKey(), entry.getValue());
+      }
+      written = !likes.isEmpty();
+      status = BatchResult.LIKED;
+    }
+    if (written) {
+      feedCache.invalidate();
+    }
+
+    List<BatchResult> results = new ArrayList<>();
+    for (long id : batch.ids) {
+      boolean found = existing.containsKey(KeyFactory.createKey(Constants.COMMENT_ENTITY, id));
+      results.add(new BatchResult(id, found ? status : BatchResult.NOT_FOUND));
+    }
+
+    Json.write(response, results);
+  }
+}
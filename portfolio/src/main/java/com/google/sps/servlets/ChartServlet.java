@@ -14,63 +14,84 @@
 
 package com.google.sps.servlets;
 
-import com.google.sps.classes.ChartDataPoint;
-import com.google.gson.Gson;
-import java.io.FileOutputStream;
-import java.io.FileNotFoundException;
+import com.google.sps.cache.CompressedBody;
+import com.google.sps.chart.ChartColumns;
+import com.google.sps.chart.ChartQuery;
+import com.google.sps.chart.ChartSeries;
+import com.google.sps.constants.Constants;
+import com.google.sps.data.WatchedDataSource;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Scanner;
+import java.util.Arrays;
+import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-// Returns budget-patent data of NASA as a JSON array, e.g. [{"year": 1900, "budget": 20, "patents": 2}]
+/**
+ * Returns budget-patent data of NASA as a JSON array, e.g. [{"year": 1900, "budget": 20, "patents": 2}].
+ * The series parameter picks another aggregation, see {@link ChartSeries}, and the data can be
+ * narrowed down with from and to years, a center, a patent status and a number of buckets, e.g.
+ * /nasa-data?series=year&from=2000&to=2009&center=NASA%20Ames%20Research%20Center&status=Issued&buckets=5
+ */
 @WebServlet("/nasa-data")
 public class ChartServlet extends HttpServlet {
 
-  private Collection<ChartDataPoint> dataPoints;
-  private String chartData;
-  private HashMap<Integer, Integer> patentsPerYear;
+  private WatchedDataSource<ChartSeries> source;
+  private String cacheControl;
 
   @Override
-  public void init() {
-    dataPoints = new ArrayList<>();
-    patentsPerYear = new HashMap<Integer, Integer>();
-
-    try (Scanner scanner = new Scanner(getServletContext().getResourceAsStream("/WEB-INF/patents.csv"))) {
-        while (scanner.hasNextLine()) {
-            String line = scanner.nextLine();
-            String[] cells = line.split(",");
-
-            int year = Integer.parseInt(cells[5]);
-            patentsPerYear.compute(year, (key, val) -> val == null ? 1 : val + 1);  
-          }
+  public void init() throws ServletException {
+    int reloadSeconds = Integer.getInteger(
+        Constants.DATA_RELOAD_SECONDS_PROPERTY, Constants.DEFAULT_DATA_RELOAD_SECONDS);
+    long checkIntervalMillis = 1000L * reloadSeconds;
+    // Clients may keep a body as long as the server would before looking at the files again.
+    cacheControl = "public, max-age=" + reloadSeconds;
+    try {
+      source = new WatchedDataSource<>(getServletContext(),
+          Arrays.asList("/WEB-INF/patents.csv", "/WEB-INF/budget.csv"), checkIntervalMillis,
+          files -> new ChartSeries(ChartColumns.load(files.get(0), files.get(1))));
+    } catch (IOException e) {
+      throw new ServletException(e);
     }
+  }
 
-    try (Scanner scanner = new Scanner(getServletContext().getResourceAsStream("/WEB-INF/budget.csv"))) {
-        while (scanner.hasNextLine()) {
-            String line = scanner.nextLine();
-            String[] cells = line.split(",");
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    try {
+      writeSeries(source.get(), request, response);
+    } finally {
+      source.reloadIfChanged();
+    }
+  }
 
-            int year = Integer.parseInt(cells[0]);
-            int budgetOfYear = Integer.parseInt(cells[1]);
-                
-            int patents = patentsPerYear.getOrDefault(year, 0);
-	    
-            dataPoints.add(new ChartDataPoint(year, budgetOfYear, patents));
-        }
+  private void writeSeries(ChartSeries series, HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    String name = request.getParameter("series");
+    CompressedBody body;
+    try {
+      ChartQuery query = new ChartQuery(name == null ? ChartSeries.PER_YEAR : name,
+          intParameter(request, "from", Integer.MIN_VALUE),
+          intParameter(request, "to", Integer.MAX_VALUE),
+          request.getParameter("center"),
+          request.getParameter("status"),
+          intParameter(request, "buckets", 0));
+      body = series.body(query);
+    } catch (IllegalArgumentException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+    if (body == null) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown series " + name);
+      return;
     }
 
-    chartData = new Gson().toJson(dataPoints);
+    // Bodies are rendered once, requests only copy their bytes.
+    body.write(request, response, cacheControl);
   }
 
-  @Override
-  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    response.setContentType("application/json");
-    response.getWriter().println(chartData);
+  private int intParameter(HttpServletRequest request, String parameter, int defaultValue) {
+    String value = request.getParameter(parameter);
+    return value == null || value.isEmpty() ? defaultValue : Integer.parseInt(value);
   }
 }
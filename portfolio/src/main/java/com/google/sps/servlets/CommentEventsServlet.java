@@ -0,0 +1,63 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.sps.servlets;
+
+import com.google.sps.events.CommentEventDispatcher;
+import java.io.IOException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Long-polls comment inserts, deletes and likes after a sequence, e.g.
+ * {"sequence": 4, "resync": false, "events": [{"type": "like", "id": 5629499534213120, "likes": 1}]}
+ *
+ * <p>A waiting poll holds a request thread, the app is threadsafe so other requests keep being
+ * served by the same instance meanwhile. The waiting polls of an instance share one read of memcache
+ * per second and one rendered payload, and appengine-web.xml lets an instance hold 80 requests so
+ * subscribers don't start new instances.
+ */
+@WebServlet("/comment/events")
+public class CommentEventsServlet extends HttpServlet {
+  private static final long POLL_TIMEOUT_MILLIS = 25000;
+
+  private final CommentEventDispatcher dispatcher = CommentEventDispatcher.getInstance();
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    response.setContentType("application/json");
+
+    long after;
+    try {
+      String afterParameter = request.getParameter("after");
+      after = afterParameter == null ? -1 : Long.parseLong(afterParameter);
+    } catch (NumberFormatException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+
+    String payload;
+    try {
+      payload = dispatcher.await(after, POLL_TIMEOUT_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Shutting down");
+      return;
+    }
+    response.getWriter().println(payload);
+  }
+}
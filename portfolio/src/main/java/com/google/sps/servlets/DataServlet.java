@@ -14,19 +14,33 @@
 
 package com.google.sps.servlets;
 
+import com.google.appengine.api.datastore.Cursor;
 import com.google.appengine.api.datastore.DatastoreService;
 import com.google.appengine.api.datastore.DatastoreServiceFactory;
 import com.google.appengine.api.datastore.Entity;
 import com.google.appengine.api.datastore.EntityNotFoundException;
 import com.google.appengine.api.datastore.FetchOptions;
-import com.google.appengine.api.datastore.Key;
-import com.google.appengine.api.datastore.KeyFactory;
 import com.google.appengine.api.datastore.PreparedQuery;
+import com.google.appengine.api.datastore.PropertyProjection;
 import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.Query.FilterOperator;
+import com.google.appengine.api.datastore.Query.FilterPredicate;
+import com.google.appengine.api.datastore.QueryResultList;
 import com.google.appengine.api.datastore.Query.SortDirection;
-import com.google.gson.Gson;
+import com.google.sps.cache.CommentFeedCache;
 import com.google.sps.classes.Comment;
+import com.google.sps.classes.CommentEvent;
+import com.google.sps.classes.CommentPage;
 import com.google.sps.constants.Constants;
+import com.google.sps.counters.ShardedLikeCounter;
+import com.google.sps.counters.UserStatsCounter;
+import com.google.sps.counters.WriteBehindLikeBuffer;
+import com.google.sps.data.PreviewBackfill;
+import com.google.sps.events.CommentEventDispatcher;
+import com.google.sps.json.Json;
+import com.google.sps.limits.DuplicatePostFilter;
+import com.google.sps.limits.TokenBucketLimiter;
+import com.google.sps.search.CommentIndex;
 import java.io.IOException;
 import static java.lang.Math.toIntExact;
 import javax.servlet.annotation.WebServlet;
@@ -35,27 +49,109 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @WebServlet("/comment")
 public class DataServlet extends HttpServlet {
+  private static final int DEFAULT_PAGE_SIZE = 20;
+  private static final int MAX_PAGE_SIZE = 100;
+  private static final String PREVIEW_VIEW = "preview";
+  private static final String TOP_FEED = "top";
+  private static final String NEWEST_FEED = "newest";
+  private static final String USER_FEED = "user";
+  private static final String ALL_WINDOW = "all";
+  private static final String DAY_WINDOW = "day";
+  private static final String WEEK_WINDOW = "week";
+
+  // Every user and IP can post 5 comments in a row, then one every 10 seconds.
+  private static final int POST_BURST = 5;
+  private static final long POST_REFILL_MILLIS = 10000;
+  private static final long DUPLICATE_WINDOW_MILLIS = 60000;
+  private static final int MAX_TRACKED_POSTERS = 10000;
+  private static final int SC_TOO_MANY_REQUESTS = 429;
+
   private final DatastoreService dataStore = DatastoreServiceFactory.getDatastoreService();
-  private Comment comment;
+  private final CommentFeedCache feedCache = CommentFeedCache.getInstance();
+  private final ShardedLikeCounter likeCounter = new ShardedLikeCounter(dataStore);
+  private final UserStatsCounter userStats = new UserStatsCounter(dataStore);
+  private final WriteBehindLikeBuffer likeBuffer = WriteBehindLikeBuffer.getInstance();
+  private final CommentEventDispatcher events = CommentEventDispatcher.getInstance();
+  private final CommentIndex searchIndex = CommentIndex.getInstance();
+  private final PreviewBackfill previewBackfill = PreviewBackfill.getInstance();
+  private final TokenBucketLimiter postLimiter =
+      new TokenBucketLimiter(POST_BURST, POST_REFILL_MILLIS, MAX_TRACKED_POSTERS);
+  private final DuplicatePostFilter duplicatePosts =
+      new DuplicatePostFilter(DUPLICATE_WINDOW_MILLIS, MAX_TRACKED_POSTERS);
+  private final boolean writeBehind = Boolean.getBoolean(Constants.LIKES_WRITE_BEHIND_PROPERTY);
 
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
     response.setContentType("application/json");
-    Query query = new Query(Constants.COMMENT_ENTITY).addSort("likes", SortDirection.DESCENDING);
+    String feed = getParameter(request, "feed", TOP_FEED);
+    String window = getParameter(request, "window", ALL_WINDOW);
+    String user = getParameter(request, "user", "");
+
+    // The preview view leaves the text of long comments out, they're fetched on expand. Its
+    // projection would skip comments without a preview, the full view is sent until they all have one.
+    boolean preview = PREVIEW_VIEW.equals(getParameter(request, "view", ""))
+        && previewBackfill.isDone(dataStore);
+
+    Query query;
+    FetchOptions fetchOptions;
+    String cursor = getParameter(request, "cursor", "");
+    try {
+      query = feedQuery(feed, window, user);
+      if (preview) {
+        addPreviewProjection(query, feed);
+      }
+
+      int pageSize = Integer.parseInt(getParameter(request, "pageSize", String.valueOf(DEFAULT_PAGE_SIZE)));
+      fetchOptions = FetchOptions.Builder.withLimit(Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE)));
+
+      if (!cursor.isEmpty()) {
+        fetchOptions.startCursor(Cursor.fromWebSafeString(cursor));
+      }
+    } catch (IllegalArgumentException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+
+    if (writeBehind) {
+      likeBuffer.flushIfDue(likeCounter);
+    }
+
+    String cacheKey = feed + ":" + window + ":" + user + ":" + (preview ? PREVIEW_VIEW : "full") + ":"
+        + fetchOptions.getLimit() + ":" + cursor;
+    String cachedPayload = feedCache.get(cacheKey);
+    if (cachedPayload != null) {
+      response.getWriter().println(cachedPayload);
+      return;
+    }
+    long cacheGeneration = feedCache.generation();
 
     PreparedQuery comments = dataStore.prepare(query);
+    QueryResultList<Entity> results = comments.asQueryResultList(fetchOptions);
+    Map<Long, Long> likes = likeCounter.counts(results);
     List<Comment> commentsToSet = new ArrayList<>();
-    for (Entity entity : comments.asIterable()) {
-        comment = new Comment(entity);
+    for (Entity entity : results) {
+        if (!entity.hasProperty("user")) {
+            // Projections can't include the property the user feed filters on.
+            entity.setProperty("user", user);
+        }
+        Comment comment = new Comment(entity);
+        comment.setLikes(toIntExact(likes.get(comment.getId()) + likeBuffer.pending(comment.getId())));
 
         commentsToSet.add(comment);
     }
 
-    Gson gson = new Gson();
-    String payload = gson.toJson(commentsToSet);
+    // A short page means the end of the comments was reached.
+    String nextCursor = null;
+    if (results.size() == fetchOptions.getLimit()) {
+        nextCursor = results.getCursor().toWebSafeString();
+    }
+
+    String payload = Json.GSON.toJson(new CommentPage(commentsToSet, nextCursor));
+    feedCache.put(cacheKey, payload, cacheGeneration);
 
     response.getWriter().println(payload);
   }
@@ -68,12 +164,35 @@ public class DataServlet extends HttpServlet {
     long commentSize = commentText.length();
     long time = System.currentTimeMillis();
 
-    comment = new Comment(commentText, user, commentSize, 0, time);
+    // A repeated submission was already stored, answer as if this one was. Checked first so it
+    // doesn't use up tokens.
+    if (!duplicatePosts.isFirst(user, commentText)) {
+      response.sendRedirect("/index.html");
+      return;
+    }
+
+    // Both buckets need a token, neither is charged for a rejected post.
+    if (!postLimiter.tryAcquire("user:" + user, "ip:" + request.getRemoteAddr())) {
+      // Not stored, so a retry isn't a duplicate.
+      duplicatePosts.forget(user, commentText);
+      response.sendError(SC_TOO_MANY_REQUESTS, "Too many comments, try again later");
+      return;
+    }
 
-    dataStore.put(comment.toEntity());
+    Entity commentEntity = new Comment(commentText, user, commentSize, 0, time).toEntity();
+    try {
+      userStats.putComment(commentEntity);
+    } catch (RuntimeException e) {
+      // Not stored, so a retry isn't a duplicate.
+      duplicatePosts.forget(user, commentText);
+      throw e;
+    }
+    Comment comment = new Comment(commentEntity);
+    feedCache.invalidate();
+    events.publish(CommentEvent.insert(comment));
+    searchIndex.add(comment);
 
-    String payload = new Gson().toJson(comment);
-    response.getWriter().println(payload);
+    Json.write(response, comment);
 
     response.sendRedirect("/index.html");
   }
@@ -83,8 +202,13 @@ public class DataServlet extends HttpServlet {
     response.setContentType("application/json;");
 
     try {
-      Key key = KeyFactory.createKey(Constants.COMMENT_ENTITY, Long.parseLong(request.getHeader("id")));
-      dataStore.delete(key);
+      long id = Long.parseLong(request.getHeader("id"));
+      // The comment goes with its like shards and out of its author's stats in one transaction.
+      if (likeCounter.deleteComment(id)) {
+        feedCache.invalidate();
+        events.publish(CommentEvent.delete(id));
+        searchIndex.remove(id);
+      }
     } catch (Exception e) {
       System.out.println(e);
     }
@@ -92,6 +216,52 @@ public class DataServlet extends HttpServlet {
     response.sendRedirect("/index.html");
   }
 
+  /*
+   * Builds the query of a feed, each one is backed by an index in datastore-indexes.xml:
+   * top      comments by likes, of all time or of the current "day" or "week" window
+   * newest   comments by time
+   * user     comments of one user by time
+   */
+  private Query feedQuery(String feed, String window, String user) {
+    Query query = new Query(Constants.COMMENT_ENTITY);
+
+    if (TOP_FEED.equals(feed)) {
+      long now = System.currentTimeMillis();
+      if (DAY_WINDOW.equals(window)) {
+        query.setFilter(new FilterPredicate("day", FilterOperator.EQUAL, now / Constants.DAY_MILLIS));
+      } else if (WEEK_WINDOW.equals(window)) {
+        query.setFilter(new FilterPredicate("week", FilterOperator.EQUAL, now / Constants.WEEK_MILLIS));
+      } else if (!ALL_WINDOW.equals(window)) {
+        throw new IllegalArgumentException("Unknown window " + window);
+      }
+      return query.addSort("likes", SortDirection.DESCENDING);
+    }
+
+    if (NEWEST_FEED.equals(feed)) {
+      return query.addSort("time", SortDirection.DESCENDING);
+    }
+
+    if (USER_FEED.equals(feed)) {
+      if (user.isEmpty()) {
+        throw new IllegalArgumentException("The user feed needs a user");
+      }
+      return query.setFilter(new FilterPredicate("user", FilterOperator.EQUAL, user))
+          .addSort("time", SortDirection.DESCENDING);
+    }
+
+    throw new IllegalArgumentException("Unknown feed " + feed);
+  }
+
+  private void addPreviewProjection(Query query, String feed) {
+    if (!USER_FEED.equals(feed)) {
+      query.addProjection(new PropertyProjection("user", String.class));
+    }
+    query.addProjection(new PropertyProjection("likes", Long.class))
+        .addProjection(new PropertyProjection("time", Long.class))
+        .addProjection(new PropertyProjection("size", Long.class))
+        .addProjection(new PropertyProjection("preview", String.class));
+  }
+
   private String getParameter(HttpServletRequest request, String parameter, String defaultValue) {
     String value = request.getParameter(parameter);
     if (value == null) {
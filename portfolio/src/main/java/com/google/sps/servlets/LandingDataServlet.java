@@ -14,51 +14,153 @@
 
 package com.google.sps.servlets;
 
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.cache.CompressedBody;
 import com.google.sps.classes.LandingSite;
-import com.google.gson.Gson;
-import java.io.FileOutputStream;
-import java.io.FileNotFoundException;
+import com.google.sps.constants.Constants;
+import com.google.sps.csv.CsvReader;
+import com.google.sps.data.WatchedDataSource;
+import com.google.sps.geo.BoundingBox;
+import com.google.sps.geo.Cluster;
+import com.google.sps.geo.PointGrid;
+import com.google.sps.json.Json;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Scanner;
+import java.util.Collections;
+import java.util.List;
+import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-/** Returns landing site data as a JSON array, e.g. [{"lat": 38.4404675, "lng": -122.7144313, "missionNum": "13", "description": "landed on Feb. 32 2022"}] */
+/**
+ * Returns landing site data as a JSON array, e.g. [{"lat": 38.4404675, "lng": -122.7144313, "missionNum": "13", "description": "landed on Feb. 32 2022"}]
+ *
+ * <p>Given a viewport with south, west, north and east only the sites inside it are sent, as
+ * {"clusters": [{"lat": 1.5, "lng": 2.5, "count": 3}], "sites": [...]}. Sites close to each other
+ * at the optional zoom level, between 0 and 22, are merged into clusters, the others are sent in
+ * full.
+ */
 @WebServlet("/landing-data")
 public class LandingDataServlet extends HttpServlet {
+  // The sites are few, a coarse grid keeps the index small.
+  private static final double GRID_CELL_DEGREES = 10;
 
-  private Collection<LandingSite> landingSites;
-  private String payload;
+  private WatchedDataSource<Sites> sites;
+  private String cacheControl;
 
-  @Override
-  public void init() {
-    landingSites = new ArrayList<>();
+  /** The parsed sites, their index and the full payload, replaced together on reload. */
+  private static final class Sites {
+    final List<LandingSite> list;
+    final PointGrid grid;
+    final CompressedBody body;
 
-    try (Scanner scanner = new Scanner(getServletContext().getResourceAsStream("/WEB-INF/landing-data.csv"))) {
-        while (scanner.hasNextLine()) {
-            String line = scanner.nextLine();
-            String[] cells = line.split(",");
-      
-            double lat = Double.parseDouble(cells[0]);
-            double lng = Double.parseDouble(cells[1]);
-            String missionNum = cells[2];
-            String description = cells[3];
-      
-            landingSites.add(new LandingSite(lat, lng, missionNum, description));
-          }
+    Sites(List<LandingSite> list) {
+      double[] lats = new double[list.size()];
+      double[] lngs = new double[list.size()];
+      for (int i = 0; i < list.size(); i++) {
+        lats[i] = list.get(i).lat;
+        lngs[i] = list.get(i).lng;
+      }
+      this.list = list;
+      this.grid = new PointGrid(lats, lngs, GRID_CELL_DEGREES);
+      this.body = new CompressedBody(Json.GSON.toJson(list), "application/json");
+    }
+  }
 
-          payload = new Gson().toJson(landingSites);
-  
+  @Override
+  public void init() throws ServletException {
+    int reloadSeconds = Integer.getInteger(
+        Constants.DATA_RELOAD_SECONDS_PROPERTY, Constants.DEFAULT_DATA_RELOAD_SECONDS);
+    long checkIntervalMillis = 1000L * reloadSeconds;
+    // Clients may keep a body as long as the server would before looking at the files again.
+    cacheControl = "public, max-age=" + reloadSeconds;
+    try {
+      sites = new WatchedDataSource<>(getServletContext(),
+          Collections.singletonList("/WEB-INF/landing-data.csv"), checkIntervalMillis,
+          files -> new Sites(load(files.get(0))));
+    } catch (IOException e) {
+      throw new ServletException(e);
     }
   }
 
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    try {
+      writeSites(sites.get(), request, response);
+    } finally {
+      sites.reloadIfChanged();
+    }
+  }
+
+  private void writeSites(Sites sites, HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    if (request.getParameter("south") == null) {
+      sites.body.write(request, response, cacheControl);
+      return;
+    }
+
+    List<LandingSite> visible = new ArrayList<>();
+    List<Cluster> clusters = new ArrayList<>();
+    try {
+      BoundingBox box = new BoundingBox(
+          doubleParameter(request, "south"),
+          doubleParameter(request, "west"),
+          doubleParameter(request, "north"),
+          doubleParameter(request, "east"));
+      String zoom = request.getParameter("zoom");
+      if (zoom == null || zoom.isEmpty()) {
+        sites.grid.query(box, site -> visible.add(sites.list.get(site)));
+      } else {
+        for (Cluster cluster : sites.grid.cluster(box, Integer.parseInt(zoom))) {
+          if (cluster.count() == 1) {
+            visible.add(sites.list.get(cluster.firstPoint()));
+          } else {
+            clusters.add(cluster);
+          }
+        }
+      }
+    } catch (IllegalArgumentException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+
     response.setContentType("application/json");
-    response.getWriter().println(payload);
+    JsonWriter out = Json.GSON.newJsonWriter(response.getWriter());
+    out.beginObject();
+    out.name("clusters").beginArray();
+    for (Cluster cluster : clusters) {
+      out.beginObject();
+      out.name("lat").value(cluster.lat());
+      out.name("lng").value(cluster.lng());
+      out.name("count").value(cluster.count());
+      out.endObject();
+    }
+    out.endArray();
+    out.name("sites").beginArray();
+    for (LandingSite site : visible) {
+      Json.GSON.toJson(site, LandingSite.class, out);
+    }
+    out.endArray();
+    out.endObject();
+    out.flush();
+    response.flushBuffer();
+  }
+
+  private double doubleParameter(HttpServletRequest request, String parameter) {
+    String value = request.getParameter(parameter);
+    if (value == null) {
+      throw new IllegalArgumentException("Missing " + parameter);
+    }
+    return Double.parseDouble(value);
+  }
+
+  private static List<LandingSite> load(ByteBuffer csv) {
+    List<LandingSite> landingSites = new ArrayList<>();
+    CsvReader.read(csv, row -> landingSites.add(
+        new LandingSite(row.getDouble(0), row.getDouble(1), row.getString(2), row.getString(3))));
+    return landingSites;
   }
 }
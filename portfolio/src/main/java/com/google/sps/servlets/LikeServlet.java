@@ -16,11 +16,14 @@ package com.google.sps.servlets;
 
 import com.google.appengine.api.datastore.DatastoreService;
 import com.google.appengine.api.datastore.DatastoreServiceFactory;
-import com.google.appengine.api.datastore.Entity;
 import com.google.appengine.api.datastore.EntityNotFoundException;
-import com.google.appengine.api.datastore.Key;
-import com.google.appengine.api.datastore.KeyFactory;
+import com.google.sps.cache.CommentFeedCache;
+import com.google.sps.classes.CommentEvent;
 import com.google.sps.constants.Constants;
+import com.google.sps.counters.ShardedLikeCounter;
+import com.google.sps.counters.WriteBehindLikeBuffer;
+import com.google.sps.events.CommentEventDispatcher;
+import com.google.sps.search.CommentIndex;
 import java.io.IOException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
@@ -30,21 +33,38 @@ import javax.servlet.http.HttpServletResponse;
 @WebServlet("/comment/like")
 public class LikeServlet extends HttpServlet {
   private final DatastoreService dataStore = DatastoreServiceFactory.getDatastoreService();
+  private final CommentFeedCache feedCache = CommentFeedCache.getInstance();
+  private final ShardedLikeCounter likeCounter = new ShardedLikeCounter(dataStore);
+  private final WriteBehindLikeBuffer likeBuffer = WriteBehindLikeBuffer.getInstance();
+  private final CommentEventDispatcher events = CommentEventDispatcher.getInstance();
+  private final CommentIndex searchIndex = CommentIndex.getInstance();
+  private final boolean writeBehind = Boolean.getBoolean(Constants.LIKES_WRITE_BEHIND_PROPERTY);
 
   @Override
   public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    Entity commentEntity;
-    Key key = KeyFactory.createKey(Constants.COMMENT_ENTITY, Long.parseLong(request.getHeader("id")));
+    long id = Long.parseLong(request.getHeader("id"));
     
     try {
-      commentEntity = dataStore.get(key);
-      commentEntity.setProperty("likes", (Long)commentEntity.getProperty("likes")+ 1L);
-      dataStore.put(commentEntity);
+      if (writeBehind) {
+        likeBuffer.add(id);
+        likeBuffer.flushIfDue(likeCounter);
+      } else {
+        likeCounter.increment(id);
+      }
+      feedCache.invalidate();
+      events.publish(CommentEvent.like(id, 1L));
+      searchIndex.addLikes(id, 1L);
     } catch (EntityNotFoundException e) {
       System.out.println(e);
     }
 
     response.sendRedirect("/index.html");
   }
-}
 
+  @Override
+  public void destroy() {
+    if (writeBehind) {
+      likeBuffer.flush(likeCounter);
+    }
+  }
+}
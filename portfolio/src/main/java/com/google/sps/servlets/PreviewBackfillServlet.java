@@ -0,0 +1,52 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.sps.data.PreviewBackfill;
+import java.io.IOException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Runs the {@link PreviewBackfill} from the cron job in WEB-INF/cron.xml, a few pages per call, so
+ * the feed requests never wait on it.
+ */
+@WebServlet("/tasks/preview-backfill")
+public class PreviewBackfillServlet extends HttpServlet {
+  // App Engine strips this header from outside requests, only cron sets it.
+  private static final String CRON_HEADER = "X-Appengine-Cron";
+  // About a thousand comments per call, well within the request deadline.
+  private static final int MAX_STEPS = 20;
+
+  private final DatastoreService dataStore = DatastoreServiceFactory.getDatastoreService();
+  private final PreviewBackfill previewBackfill = PreviewBackfill.getInstance();
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    if (!"true".equals(request.getHeader(CRON_HEADER))) {
+      response.sendError(HttpServletResponse.SC_FORBIDDEN, "Only run by cron");
+      return;
+    }
+
+    for (int step = 0; step < MAX_STEPS && !previewBackfill.isDone(dataStore); step++) {
+      previewBackfill.step(dataStore);
+    }
+    response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+  }
+}
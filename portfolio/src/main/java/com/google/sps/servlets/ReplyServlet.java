@@ -0,0 +1,173 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.appengine.api.datastore.Cursor;
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.EntityNotFoundException;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.Query.FilterOperator;
+import com.google.appengine.api.datastore.Query.FilterPredicate;
+import com.google.appengine.api.datastore.Query.SortDirection;
+import com.google.appengine.api.datastore.QueryResultList;
+import com.google.appengine.api.datastore.Transaction;
+import com.google.sps.cache.CommentFeedCache;
+import com.google.sps.classes.Reply;
+import com.google.sps.classes.ReplyPage;
+import com.google.sps.constants.Constants;
+import com.google.sps.json.Json;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Reply threads. GET returns a page of the direct replies of a comment or reply, oldest first, e.g.
+ * /comment/replies?parent=5629499534213120 for a comment id or ?parent=<key> for a reply, so a deep
+ * thread is opened one level and page at a time. POST answers the parent with the user and comment
+ * parameters.
+ */
+@WebServlet("/comment/replies")
+public class ReplyServlet extends HttpServlet {
+  private static final int DEFAULT_PAGE_SIZE = 10;
+  private static final int MAX_PAGE_SIZE = 100;
+  private static final int MAX_RETRIES = 3;
+
+  private final DatastoreService dataStore = DatastoreServiceFactory.getDatastoreService();
+  private final CommentFeedCache feedCache = CommentFeedCache.getInstance();
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    response.setContentType("application/json");
+
+    Key parent;
+    FetchOptions fetchOptions;
+    try {
+      parent = parentKey(request.getParameter("parent"));
+
+      String pageSizeParameter = request.getParameter("pageSize");
+      int pageSize = pageSizeParameter == null ? DEFAULT_PAGE_SIZE : Integer.parseInt(pageSizeParameter);
+      fetchOptions = FetchOptions.Builder.withLimit(Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE)));
+
+      String cursor = request.getParameter("cursor");
+      if (cursor != null && !cursor.isEmpty()) {
+        fetchOptions.startCursor(Cursor.fromWebSafeString(cursor));
+      }
+    } catch (IllegalArgumentException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+
+    // The ancestor keeps the query in the thread, the parent filter to its first level.
+    Query query = new Query(Constants.REPLY_ENTITY)
+        .setAncestor(parent)
+        .setFilter(new FilterPredicate("parent", FilterOperator.EQUAL, parent))
+        .addSort("time", SortDirection.ASCENDING);
+    QueryResultList<Entity> results = dataStore.prepare(query).asQueryResultList(fetchOptions);
+
+    List<Reply> replies = new ArrayList<>();
+    for (Entity entity : results) {
+      replies.add(new Reply(entity));
+    }
+
+    String nextCursor = null;
+    if (results.size() == fetchOptions.getLimit()) {
+      nextCursor = results.getCursor().toWebSafeString();
+    }
+
+    Json.write(response, new ReplyPage(replies, nextCursor));
+  }
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    response.setContentType("application/json");
+    String commentText = request.getParameter("comment");
+    String user = request.getParameter("user");
+
+    Key parent;
+    try {
+      parent = parentKey(request.getParameter("parent"));
+    } catch (IllegalArgumentException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+    if (commentText == null || commentText.isEmpty() || user == null || user.isEmpty()) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Expected a user and a comment");
+      return;
+    }
+
+    Entity reply;
+    try {
+      reply = putReply(parent, Reply.toEntity(parent, commentText, user, System.currentTimeMillis()));
+    } catch (EntityNotFoundException e) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND);
+      return;
+    }
+    // Full feed pages carry the reply counts of the comments.
+    feedCache.invalidate();
+
+    Json.write(response, new Reply(reply));
+  }
+
+  // The reply and the count of its parent are in the same entity group, so one plain transaction.
+  private Entity putReply(Key parent, Entity reply) throws EntityNotFoundException {
+    for (int attempt = 0; ; attempt++) {
+      Transaction txn = dataStore.beginTransaction();
+      try {
+        Entity parentEntity = dataStore.get(txn, parent);
+        long replies = parentEntity.hasProperty("replies") ? (Long) parentEntity.getProperty("replies") : 0L;
+        parentEntity.setProperty("replies", replies + 1);
+
+        dataStore.put(txn, parentEntity);
+        dataStore.put(txn, reply);
+        txn.commit();
+        return reply;
+      } catch (ConcurrentModificationException e) {
+        if (attempt >= MAX_RETRIES) {
+          throw e;
+        }
+      } finally {
+        if (txn.isActive()) {
+          txn.rollback();
+        }
+      }
+    }
+  }
+
+  // Comments are addressed by id like everywhere else, replies by their web safe key.
+  private Key parentKey(String parent) {
+    if (parent == null || parent.isEmpty()) {
+      throw new IllegalArgumentException("Expected a parent");
+    }
+    if (parent.chars().allMatch(Character::isDigit)) {
+      return KeyFactory.createKey(Constants.COMMENT_ENTITY, Long.parseLong(parent));
+    }
+
+    Key key = KeyFactory.stringToKey(parent);
+    if (!Constants.REPLY_ENTITY.equals(key.getKind())) {
+      throw new IllegalArgumentException("Parent " + parent + " isn't a comment or a reply");
+    }
+    return key;
+  }
+}
@@ -0,0 +1,90 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.sps.servlets;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.sps.classes.Comment;
+import com.google.sps.constants.Constants;
+import com.google.sps.counters.ShardedLikeCounter;
+import com.google.sps.json.Json;
+import com.google.sps.search.CommentIndex;
+import java.io.IOException;
+import static java.lang.Math.toIntExact;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/** Returns the comments containing every word of q, most liked first, e.g. /comment/search?q=moon */
+@WebServlet(urlPatterns = "/comment/search", loadOnStartup = 1)
+public class SearchServlet extends HttpServlet {
+  private static final int DEFAULT_LIMIT = 20;
+  private static final int MAX_LIMIT = 100;
+
+  private final DatastoreService dataStore = DatastoreServiceFactory.getDatastoreService();
+  private final ShardedLikeCounter likeCounter = new ShardedLikeCounter(dataStore);
+  private final CommentIndex index = CommentIndex.getInstance();
+
+  @Override
+  public void init() {
+    index.ensureBuilt(dataStore);
+  }
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    response.setContentType("application/json");
+    String query = request.getParameter("q");
+
+    int limit;
+    try {
+      String limitParameter = request.getParameter("limit");
+      limit = limitParameter == null ? DEFAULT_LIMIT : Integer.parseInt(limitParameter);
+    } catch (NumberFormatException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+
+    index.ensureBuilt(dataStore);
+    List<Long> ids = index.search(query == null ? "" : query, Math.max(1, Math.min(limit, MAX_LIMIT)));
+
+    List<Key> keys = new ArrayList<>();
+    for (long id : ids) {
+      keys.add(KeyFactory.createKey(Constants.COMMENT_ENTITY, id));
+    }
+    Map<Key, Entity> entities = dataStore.get(keys);
+    Map<Long, Long> likes = likeCounter.counts(entities.values());
+
+    // Keep the ranking of the index, skipping comments deleted from another instance.
+    List<Comment> comments = new ArrayList<>();
+    for (Key key : keys) {
+      Entity entity = entities.get(key);
+      if (entity != null) {
+        Comment comment = new Comment(entity);
+        comment.setLikes(toIntExact(likes.get(comment.getId())));
+        comments.add(comment);
+      }
+    }
+
+    Json.write(response, comments);
+  }
+}
@@ -0,0 +1,44 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.sps.counters.UserStatsCounter;
+import com.google.sps.json.Json;
+import java.io.IOException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/** Returns the comment figures of a user, e.g. /comment/stats?user=ana gives {"user": "ana", "comments": 3, "likes": 12} */
+@WebServlet("/comment/stats")
+public class UserStatsServlet extends HttpServlet {
+  private final DatastoreService dataStore = DatastoreServiceFactory.getDatastoreService();
+  private final UserStatsCounter userStats = new UserStatsCounter(dataStore);
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    response.setContentType("application/json");
+    String user = request.getParameter("user");
+    if (!UserStatsCounter.isCounted(user)) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Expected a user");
+      return;
+    }
+
+    Json.write(response, userStats.get(user));
+  }
+}
@@ -45,10 +45,6 @@ async function loadChart() {
 }
 
 async function loadMap() {
-  const response = await fetch("/landing-data");
-  const payload = await response.json();
-
-
   var map = new google.maps.Map(document.getElementById("map"), mapOptions);
 
   var moonMapType = new google.maps.ImageMapType({
@@ -73,21 +69,43 @@ async function loadMap() {
   map.setMapTypeId("moon");
 
   var infowindow = new google.maps.InfoWindow();
-
-  var marker;
-
-  for (i in payload) {
-    const info = payload[i];
-    const imgRef = `http://mw1.google.com/mw-planetary/lunar/lunarmaps_v1/util/s${info.missionNum}.png`;
-    marker = new google.maps.Marker({ position: { lat: info.lat, lng: info.lng }, icon: imgRef, map: map });
-
-    google.maps.event.addListener(marker, 'click', (function (marker, i) {
-      return function () {
+  var markers = [];
+
+  // Only the sites in view are fetched, again whenever the map stops moving
+  map.addListener("idle", async function () {
+    const bounds = map.getBounds();
+    const response = await fetch("/landing-data?" + new URLSearchParams({
+      south: bounds.getSouthWest().lat(),
+      west: bounds.getSouthWest().lng(),
+      north: bounds.getNorthEast().lat(),
+      east: bounds.getNorthEast().lng(),
+      zoom: map.getZoom()
+    }));
+    const payload = await response.json();
+
+    for (marker of markers) {
+      marker.setMap(null);
+    }
+    markers = [];
+
+    for (const cluster of payload.clusters) {
+      markers.push(new google.maps.Marker({
+        position: { lat: cluster.lat, lng: cluster.lng },
+        label: String(cluster.count),
+        map: map
+      }));
+    }
+
+    for (const info of payload.sites) {
+      const imgRef = `http://mw1.google.com/mw-planetary/lunar/lunarmaps_v1/util/s${info.missionNum}.png`;
+      const marker = new google.maps.Marker({ position: { lat: info.lat, lng: info.lng }, icon: imgRef, map: map });
+      marker.addListener("click", function () {
         infowindow.setContent(info.description);
         infowindow.open(map, marker);
-      }
-    })(marker, i));
-  }
+      });
+      markers.push(marker);
+    }
+  });
 }
 
 // Normalizes the coords that tiles repeat across the x axis (horizontally)
@@ -61,7 +61,10 @@ const createCommentElement = commentPayload => {
 
     more.classList.remove("hidden-element");
 
-    fullComment.innerHTML = commentText;
+    // The preview feed only sends the start of long comments, the rest is loaded on expand.
+    if (commentText.length >= commentPayload.size) {
+      fullComment.innerHTML = commentText;
+    }
 
     comment.innerHTML = shortenedComment.concat("...");
     comment.id = id.concat("-visible");
@@ -83,11 +86,90 @@ const createCommentElement = commentPayload => {
 
   like.onclick = () => likeComment(id);
 
+  clonedComment.append(createRepliesElement(id, commentPayload.replies));
+
   clonedComment.id = id;
   return clonedComment;
 }
 
-function showFullText(id) {
+// Threads are opened one level and one page at a time, the preview feed doesn't know reply counts.
+const createRepliesElement = (parent, count) => {
+  const wrapper = document.createElement("div");
+  const showReplies = document.createElement("button");
+  const reply = document.createElement("button");
+  const replies = document.createElement("ul");
+
+  showReplies.className = "btn";
+  showReplies.innerText = count === undefined ? "Replies" : "Replies (".concat(String(count), ")");
+  showReplies.classList.toggle("hidden-element", count === 0);
+  showReplies.onclick = () => getReplies(parent, replies, showReplies);
+
+  reply.className = "btn";
+  reply.innerText = "Reply";
+  reply.onclick = () => replyTo(parent, replies);
+
+  wrapper.append(showReplies, reply, replies);
+  return wrapper;
+}
+
+const createReplyElement = replyPayload => {
+  const element = document.createElement("li");
+  const text = document.createElement("p");
+
+  element.className = "list-group-item";
+  element.id = replyPayload.key;
+  text.innerText = "@ ".concat(replyPayload.user, ": ", replyPayload.comment);
+
+  element.append(text, createRepliesElement(replyPayload.key, replyPayload.replies));
+  return element;
+}
+
+async function getReplies(parent, replies, button, cursor) {
+  let url = "/comment/replies?parent=".concat(encodeURIComponent(parent));
+  if (cursor) {
+    url = url.concat("&cursor=", encodeURIComponent(cursor));
+  }
+  const response = await fetch(url);
+  const payload = await response.json();
+
+  // Our own replies were already added when they were posted.
+  for (const reply of payload.replies) {
+    if (!document.getElementById(reply.key)) {
+      replies.append(createReplyElement(reply));
+    }
+  }
+
+  if (payload.cursor) {
+    button.innerText = "More replies";
+    button.onclick = () => getReplies(parent, replies, button, payload.cursor);
+  } else {
+    button.classList.add("hidden-element");
+  }
+}
+
+async function replyTo(parent, replies) {
+  const user = document.getElementById("user").value;
+  if (!user) {
+    alert("Write your user in the comment form first");
+    return;
+  }
+
+  const comment = prompt("Reply as @ ".concat(user));
+  if (!comment) {
+    return;
+  }
+
+  try {
+    const response = await fetch("/comment/replies", { method: "POST", body: new URLSearchParams({ parent, user, comment }) });
+    const reply = await response.json();
+
+    replies.append(createReplyElement(reply));
+  } catch (e) {
+    console.log("ERROR: ".concat(e));
+  }
+}
+
+async function showFullText(id) {
   const hiddenId = id.concat("-hidden");
   const visibleId = id.concat("-visible");
   const moreBtnId = id.concat("-btn");
@@ -95,6 +177,13 @@ function showFullText(id) {
   const hiddenCommentElement = document.getElementById(hiddenId);
   const visibleCommentElement = document.getElementById(visibleId);
 
+  if (!hiddenCommentElement.innerHTML) {
+    const response = await fetch("/comment/text?id=".concat(id));
+    const payload = await response.json();
+
+    hiddenCommentElement.innerHTML = payload.comment;
+  }
+
   hiddenCommentElement.classList.remove("hidden-element");
   visibleCommentElement.classList.add("hidden-element");
 
@@ -102,31 +191,125 @@ function showFullText(id) {
 }
 
 async function removeComment(id) {
+  // The event can come back before the response does, so it's expected before sending.
+  expectOwnEvent("delete", id);
   try {
     const response = await fetch("/comment", { method: "DELETE", headers: { id } });
+    if (!response.ok) {
+      throw new Error(response.statusText);
+    }
 
-    getComments();
+    applyCommentEvent({ type: "delete", id });
   } catch (e) {
+    forgetOwnEvent("delete", id);
     console.log("ERROR: ".concat(e));
   }
 }
 
 async function likeComment(id) {
+  expectOwnEvent("like", id);
   try {
     const response = await fetch("/comment/like", { method: 'POST', headers: { id } });
+    if (!response.ok) {
+      throw new Error(response.statusText);
+    }
 
-    getComments();
+    applyCommentEvent({ type: "like", id, likes: 1 });
   } catch (e) {
+    forgetOwnEvent("like", id);
     console.log("ERROR: ".concat(e));
   }
 }
 
-function createCommentsFromJson(payload) {
+// Our own likes and deletes are applied right away, so their events are skipped when they come back.
+const ownEvents = new Map();
+
+function expectOwnEvent(type, id) {
+  const key = type.concat(":", id);
+  ownEvents.set(key, (ownEvents.get(key) || 0) + 1);
+}
+
+// A failed request publishes no event, so nothing is skipped for it.
+function forgetOwnEvent(type, id) {
+  const key = type.concat(":", id);
+  const pending = ownEvents.get(key) || 0;
+  if (pending > 1) {
+    ownEvents.set(key, pending - 1);
+  } else {
+    ownEvents.delete(key);
+  }
+}
+
+function isOwnEvent(event) {
+  const key = event.type.concat(":", String(event.id));
+  const pending = ownEvents.get(key) || 0;
+  if (pending == 0) {
+    return false;
+  }
+
+  ownEvents.set(key, pending - 1);
+  return true;
+}
+
+function applyCommentEvent(event) {
+  const id = String(event.id);
+  const element = document.getElementById(id);
+
+  if (event.type == "insert") {
+    if (!element) {
+      const comments = document.getElementById("comments");
+      comments.append(createCommentElement(event.comment));
+      comments.append(document.createElement("br"));
+    }
+  } else if (event.type == "delete") {
+    if (element) {
+      element.nextSibling.remove();
+      element.remove();
+    }
+  } else if (event.type == "like") {
+    const numOfLikes = document.getElementById(id.concat("-likes"));
+    if (numOfLikes) {
+      const likes = parseInt(numOfLikes.innerHTML.slice(1)) + event.likes;
+      numOfLikes.innerHTML = "+".concat(String(likes));
+    }
+  }
+}
+
+// Long-polls the server for changes to the comments instead of reloading the whole list.
+async function listenToCommentEvents() {
+  let sequence = -1;
+
+  while (true) {
+    try {
+      const response = await fetch("/comment/events?after=".concat(sequence));
+      const payload = await response.json();
+
+      if (payload.resync) {
+        ownEvents.clear();
+        getComments();
+      } else {
+        for (const event of payload.events) {
+          if (!isOwnEvent(event)) {
+            applyCommentEvent(event);
+          }
+        }
+      }
+      sequence = payload.sequence;
+    } catch (e) {
+      console.log("ERROR: ".concat(e));
+      await new Promise(resolve => setTimeout(resolve, 5000));
+    }
+  }
+}
+
+function createCommentsFromJson(payload, append) {
   const comments = document.getElementById("comments");
   const template = document.getElementById("comment-template");
   
-  comments.innerHTML = "";
-  comments.appendChild(template);
+  if (!append) {
+    comments.innerHTML = "";
+    comments.appendChild(template);
+  }
 
   for (const comment of payload) {
     const commentToInsert = createCommentElement(comment);
@@ -135,9 +318,22 @@ function createCommentsFromJson(payload) {
   }
 }
 
-async function getComments() {
-  const response = await fetch("/comment");
+let nextCommentsCursor = null;
+
+async function getComments(cursor) {
+  let url = "/comment?view=preview";
+  if (cursor) {
+    url = url.concat("&cursor=", encodeURIComponent(cursor));
+  }
+  const response = await fetch(url);
   const payload = await response.json();
 
-  createCommentsFromJson(payload);
+  createCommentsFromJson(payload.comments, Boolean(cursor));
+
+  nextCommentsCursor = payload.cursor;
+  document.getElementById("more-comments").classList.toggle("hidden-element", !nextCommentsCursor);
+}
+
+function getMoreComments() {
+  getComments(nextCommentsCursor);
 }
\ No newline at end of file
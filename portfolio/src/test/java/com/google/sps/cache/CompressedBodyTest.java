@@ -0,0 +1,62 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.sps.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class CompressedBodyTest {
+  @Test
+  public void gzipIsAccepted() {
+    Assert.assertTrue(CompressedBody.acceptsGzip("gzip"));
+    Assert.assertTrue(CompressedBody.acceptsGzip("deflate, GZIP;q=0.5"));
+    Assert.assertTrue(CompressedBody.acceptsGzip("br;q=1.0, gzip;Q=0.8, *;q=0.1"));
+    Assert.assertTrue(CompressedBody.acceptsGzip("x-gzip"));
+  }
+
+  @Test
+  public void missingOrOtherCodingsAreNotGzip() {
+    Assert.assertFalse(CompressedBody.acceptsGzip(null));
+    Assert.assertFalse(CompressedBody.acceptsGzip(""));
+    Assert.assertFalse(CompressedBody.acceptsGzip("identity"));
+    Assert.assertFalse(CompressedBody.acceptsGzip("deflate, br"));
+  }
+
+  @Test
+  public void zeroOrMalformedQualityRefusesGzip() {
+    Assert.assertFalse(CompressedBody.acceptsGzip("gzip;q=0"));
+    Assert.assertFalse(CompressedBody.acceptsGzip("gzip; q=0.000"));
+    Assert.assertFalse(CompressedBody.acceptsGzip("gzip;q=high"));
+  }
+
+  @Test
+  public void starAcceptsGzipUnlessGzipIsNamed() {
+    Assert.assertTrue(CompressedBody.acceptsGzip("*"));
+    Assert.assertTrue(CompressedBody.acceptsGzip("identity, *;q=0.5"));
+    Assert.assertFalse(CompressedBody.acceptsGzip("*;q=0"));
+  }
+
+  @Test
+  public void namedGzipDecidesOverStar() {
+    Assert.assertFalse(CompressedBody.acceptsGzip("gzip;q=0, *"));
+    Assert.assertFalse(CompressedBody.acceptsGzip("*, gzip;q=0"));
+    Assert.assertTrue(CompressedBody.acceptsGzip("gzip;q=0.1, *;q=0"));
+    Assert.assertTrue(CompressedBody.acceptsGzip("*;q=0, gzip"));
+  }
+}
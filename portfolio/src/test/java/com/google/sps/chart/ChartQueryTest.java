@@ -0,0 +1,86 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.sps.chart;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class ChartQueryTest {
+  @Test
+  public void yearRangeIncludesBothEnds() {
+    ChartQuery query = new ChartQuery(ChartSeries.PER_YEAR, 2000, 2002, null, null, 0);
+    Assert.assertFalse(query.containsYear(1999));
+    Assert.assertTrue(query.containsYear(2000));
+    Assert.assertTrue(query.containsYear(2002));
+    Assert.assertFalse(query.containsYear(2003));
+  }
+
+  @Test
+  public void yearRangeOfOneYear() {
+    ChartQuery query = new ChartQuery(ChartSeries.PER_YEAR, 2000, 2000, null, null, 0);
+    Assert.assertTrue(query.containsYear(2000));
+    Assert.assertFalse(query.containsYear(2001));
+  }
+
+  @Test
+  public void openYearRangeContainsEveryYear() {
+    ChartQuery query = ChartQuery.all(ChartSeries.PER_YEAR);
+    Assert.assertTrue(query.containsYear(Integer.MIN_VALUE));
+    Assert.assertTrue(query.containsYear(Integer.MAX_VALUE));
+  }
+
+  @Test
+  public void emptyYearRangeIsRejected() {
+    try {
+      new ChartQuery(ChartSeries.PER_YEAR, 2001, 2000, null, null, 0);
+      Assert.fail();
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals("The year range 2001-2000 is empty", e.getMessage());
+    }
+  }
+
+  @Test
+  public void negativeBucketsAreRejected() {
+    try {
+      new ChartQuery(ChartSeries.PER_YEAR, 2000, 2001, null, null, -1);
+      Assert.fail();
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals("Expected a non-negative number of buckets, got -1", e.getMessage());
+    }
+  }
+
+  @Test
+  public void onlyTheUnfilteredQueryIsAll() {
+    Assert.assertTrue(new ChartQuery("year", Integer.MIN_VALUE, Integer.MAX_VALUE, null, null, 0).isAll());
+    Assert.assertFalse(new ChartQuery("year", Integer.MIN_VALUE, 2000, null, null, 0).isAll());
+    Assert.assertFalse(new ChartQuery("year", Integer.MIN_VALUE, Integer.MAX_VALUE, "A", null, 0).isAll());
+    Assert.assertFalse(new ChartQuery("year", Integer.MIN_VALUE, Integer.MAX_VALUE, null, "B", 0).isAll());
+    Assert.assertFalse(new ChartQuery("year", Integer.MIN_VALUE, Integer.MAX_VALUE, null, null, 4).isAll());
+  }
+
+  @Test
+  public void keysTellFiltersApart() {
+    Assert.assertNotEquals(
+        new ChartQuery("year", 2000, 2001, "A", null, 0).key(),
+        new ChartQuery("year", 2000, 2001, null, "A", 0).key());
+    Assert.assertEquals(
+        new ChartQuery("year", 2000, 2001, "A", null, 3).key(),
+        new ChartQuery("year", 2000, 2001, "A", null, 3).key());
+  }
+}
@@ -0,0 +1,211 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.sps.chart;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.sps.classes.ChartDataPoint;
+import com.google.sps.json.Json;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class ChartSeriesTest {
+  private static final String BUDGET =
+      "2000,100\n"
+      + "2001,200\n"
+      + "2002,300\n"
+      + "2003,400\n"
+      + "2004,500\n";
+  // Center, status, case number, patent number, expiration date, year. 1999 has no budget.
+  private static final String PATENTS =
+      "A,Issued,A-1,1,01/01/2020,2000\n"
+      + "A,Application,A-2,,01/01/2021,2001\n"
+      + "B,Issued,B-1,2,01/01/2021,2001\n"
+      + "B,Issued,B-2,3,01/01/2023,2003\n"
+      + "A,Issued,A-3,4,01/01/2024,2004\n"
+      + "A,Issued,A-4,5,01/01/2024,2004\n"
+      + "B,Application,B-3,,01/01/2019,1999\n";
+
+  private ChartSeries series;
+
+  @Before
+  public void setUp() {
+    series = new ChartSeries(ChartColumns.load(bytes(PATENTS), bytes(BUDGET)));
+  }
+
+  @Test
+  public void wholeYearSeries() {
+    Assert.assertEquals(
+        Arrays.asList("2000:100:1", "2001:200:2", "2002:300:0", "2003:400:1", "2004:500:2"),
+        points(query(ChartSeries.PER_YEAR, Integer.MIN_VALUE, Integer.MAX_VALUE, null, null, 0)));
+  }
+
+  @Test
+  public void yearRangeIncludesBothEnds() {
+    Assert.assertEquals(
+        Arrays.asList("2001:200:2", "2002:300:0", "2003:400:1"),
+        points(query(ChartSeries.PER_YEAR, 2001, 2003, null, null, 0)));
+  }
+
+  @Test
+  public void yearRangeOfOneYear() {
+    Assert.assertEquals(
+        Arrays.asList("2004:500:2"), points(query(ChartSeries.PER_YEAR, 2004, 2004, null, null, 0)));
+  }
+
+  @Test
+  public void yearRangeOutsideTheData() {
+    Assert.assertEquals(
+        Collections.emptyList(), points(query(ChartSeries.PER_YEAR, 1990, 1999, null, null, 0)));
+    Assert.assertEquals(
+        Collections.emptyList(), points(query(ChartSeries.CUMULATIVE, 2005, 2010, null, null, 3)));
+  }
+
+  @Test
+  public void perCenterCountsPatentsOfYearsWithoutBudget() {
+    Assert.assertEquals(
+        Arrays.asList("B:1", "A:0"),
+        centers(query(ChartSeries.PER_CENTER, Integer.MIN_VALUE, 1999, null, null, 0)));
+    Assert.assertEquals(
+        Arrays.asList("A:4", "B:3"),
+        centers(query(ChartSeries.PER_CENTER, Integer.MIN_VALUE, Integer.MAX_VALUE, null, null, 0)));
+  }
+
+  @Test
+  public void singleCenter() {
+    Assert.assertEquals(
+        Arrays.asList("2000:100:1", "2001:200:1", "2002:300:0", "2003:400:0", "2004:500:2"),
+        points(query(ChartSeries.PER_YEAR, Integer.MIN_VALUE, Integer.MAX_VALUE, "A", null, 0)));
+    Assert.assertEquals(
+        Arrays.asList("B:3"),
+        centers(query(ChartSeries.PER_CENTER, Integer.MIN_VALUE, Integer.MAX_VALUE, "B", null, 0)));
+  }
+
+  @Test
+  public void singleStatus() {
+    Assert.assertEquals(
+        Arrays.asList("2000:100:0", "2001:200:1", "2002:300:0", "2003:400:0", "2004:500:0"),
+        points(query(ChartSeries.PER_YEAR, Integer.MIN_VALUE, Integer.MAX_VALUE, null, "Application", 0)));
+    Assert.assertEquals(
+        Arrays.asList("A:1", "B:1"),
+        centers(query(ChartSeries.PER_CENTER, Integer.MIN_VALUE, Integer.MAX_VALUE, null, "Application", 0)));
+  }
+
+  @Test
+  public void singleCenterAndStatus() {
+    Assert.assertEquals(
+        Arrays.asList("2000:100:0", "2001:200:1", "2002:300:0", "2003:400:1", "2004:500:0"),
+        points(query(ChartSeries.PER_YEAR, Integer.MIN_VALUE, Integer.MAX_VALUE, "B", "Issued", 0)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unknownCenterIsRejected() {
+    series.render(new ChartQuery(ChartSeries.PER_YEAR, 2000, 2004, "C", null, 0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unknownStatusIsRejected() {
+    series.render(new ChartQuery(ChartSeries.PER_CENTER, 2000, 2004, null, "Expired", 0));
+  }
+
+  @Test
+  public void unknownSeriesRendersNothing() {
+    Assert.assertNull(series.render(new ChartQuery("month", 2000, 2004, null, null, 0)));
+    Assert.assertNull(series.body("month"));
+  }
+
+  @Test
+  public void bucketsAtLeastThePointsKeepEveryYear() {
+    List<String> years = points(query(ChartSeries.PER_YEAR, 2000, 2004, null, null, 0));
+    Assert.assertEquals(years, points(query(ChartSeries.PER_YEAR, 2000, 2004, null, null, 5)));
+    Assert.assertEquals(years, points(query(ChartSeries.PER_YEAR, 2000, 2004, null, null, 50)));
+  }
+
+  @Test
+  public void bucketsAverageBudgetsAndSumPatents() {
+    // 5 years in 2 buckets: 2000-2001 and 2002-2004, dated by their first year.
+    Assert.assertEquals(
+        Arrays.asList("2000:150:3", "2002:400:3"),
+        points(query(ChartSeries.PER_YEAR, 2000, 2004, null, null, 2)));
+    Assert.assertEquals(
+        Arrays.asList("2000:300:6"), points(query(ChartSeries.PER_YEAR, 2000, 2004, null, null, 1)));
+  }
+
+  @Test
+  public void cumulativeSumsFromTheStartOfTheRange() {
+    Assert.assertEquals(
+        Arrays.asList("2000:100:1", "2001:300:3", "2002:600:3", "2003:1000:4", "2004:1500:6"),
+        points(query(ChartSeries.CUMULATIVE, Integer.MIN_VALUE, Integer.MAX_VALUE, null, null, 0)));
+    Assert.assertEquals(
+        Arrays.asList("2002:300:0", "2003:700:1", "2004:1200:3"),
+        points(query(ChartSeries.CUMULATIVE, 2002, 2004, null, null, 0)));
+  }
+
+  @Test
+  public void cumulativeBucketsAreDatedByTheirLastYear() {
+    Assert.assertEquals(
+        Arrays.asList("2001:300:3", "2004:1500:6"),
+        points(query(ChartSeries.CUMULATIVE, 2000, 2004, null, null, 2)));
+    Assert.assertEquals(
+        Arrays.asList("2004:1500:6"), points(query(ChartSeries.CUMULATIVE, 2000, 2004, null, null, 1)));
+  }
+
+  @Test
+  public void wholeSeriesMatchesItsQuery() {
+    for (String name : Arrays.asList(ChartSeries.PER_YEAR, ChartSeries.PER_CENTER, ChartSeries.CUMULATIVE)) {
+      Assert.assertSame(series.body(name), series.body(ChartQuery.all(name)));
+    }
+  }
+
+  private JsonElement query(String name, int fromYear, int toYear, String center, String status,
+      int buckets) {
+    byte[] json = series.render(new ChartQuery(name, fromYear, toYear, center, status, buckets));
+    return new JsonParser().parse(new String(json, StandardCharsets.UTF_8));
+  }
+
+  // Points as year:budget:patents.
+  private static List<String> points(JsonElement json) {
+    List<String> points = new ArrayList<>();
+    for (ChartDataPoint point : Json.GSON.fromJson(json, ChartDataPoint[].class)) {
+      points.add(point.year + ":" + point.budget + ":" + point.patents);
+    }
+    return points;
+  }
+
+  // Centers as center:patents.
+  private static List<String> centers(JsonElement json) {
+    List<String> centers = new ArrayList<>();
+    for (JsonElement center : json.getAsJsonArray()) {
+      centers.add(center.getAsJsonObject().get("center").getAsString() + ":"
+          + center.getAsJsonObject().get("patents").getAsInt());
+    }
+    return centers;
+  }
+
+  private static ByteBuffer bytes(String csv) {
+    return ByteBuffer.wrap(csv.getBytes(StandardCharsets.UTF_8));
+  }
+}
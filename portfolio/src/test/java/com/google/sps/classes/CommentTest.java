@@ -0,0 +1,58 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.classes;
+
+import com.google.sps.constants.Constants;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class CommentTest {
+  private static final int LENGTH = Constants.COMMENT_PREVIEW_LENGTH;
+
+  @Test
+  public void shortCommentIsItsOwnPreview() {
+    Assert.assertEquals("hello", Comment.preview("hello"));
+  }
+
+  @Test
+  public void longCommentIsCut() {
+    String comment = repeat('a', LENGTH + 10);
+    Assert.assertEquals(repeat('a', LENGTH), Comment.preview(comment));
+  }
+
+  @Test
+  public void cutDoesNotSplitSurrogatePair() {
+    // The emoji takes the last char of the preview and the first one after it.
+    String comment = repeat('a', LENGTH - 1) + "😀" + "b";
+    Assert.assertEquals(repeat('a', LENGTH - 1), Comment.preview(comment));
+  }
+
+  @Test
+  public void surrogatePairEndingThePreviewIsKept() {
+    String comment = repeat('a', LENGTH - 2) + "😀" + "b";
+    Assert.assertEquals(repeat('a', LENGTH - 2) + "😀", Comment.preview(comment));
+  }
+
+  private static String repeat(char c, int times) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < times; i++) {
+      builder.append(c);
+    }
+    return builder.toString();
+  }
+}
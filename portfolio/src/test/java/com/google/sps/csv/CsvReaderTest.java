@@ -0,0 +1,227 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.csv;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class CsvReaderTest {
+  @Test
+  public void plainRows() {
+    Assert.assertEquals(
+        Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c", "d")),
+        read("a,b\nc,d\n"));
+  }
+
+  @Test
+  public void quotedFieldsKeepCommasQuotesAndLineBreaks() {
+    Assert.assertEquals(
+        Arrays.asList(
+            Arrays.asList("x, y", "say \"hi\"", "two\nlines"),
+            Arrays.asList("", "after")),
+        read("\"x, y\",\"say \"\"hi\"\"\",\"two\nlines\"\n\"\",after\n"));
+  }
+
+  @Test
+  public void crlfEndsRows() {
+    Assert.assertEquals(
+        Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c", "\"d\"")),
+        read("a,b\r\nc,\"\"\"d\"\"\"\r\n"));
+  }
+
+  @Test
+  public void carriageReturnBeforeCommaIsData() {
+    Assert.assertEquals(Arrays.asList(Arrays.asList("a\r", "b\r")), read("a\r,b\r"));
+  }
+
+  @Test
+  public void lastRowWithoutLineBreak() {
+    Assert.assertEquals(
+        Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c", "\"d\"")),
+        read("a,b\nc,\"\"\"d\"\"\""));
+  }
+
+  @Test
+  public void emptyCellsAreKept() {
+    Assert.assertEquals(
+        Arrays.asList(Arrays.asList("", "b", ""), Arrays.asList("", "", "")),
+        read(",b,\n,,\n"));
+  }
+
+  @Test
+  public void emptyLinesAreSkipped() {
+    Assert.assertEquals(
+        Arrays.asList(Arrays.asList("a"), Arrays.asList("b")), read("\na\n\r\n\nb\n"));
+  }
+
+  @Test
+  public void splitChunksReadTheSameRows() {
+    String csv = "a,\"b\nc\"\r\nd,e\n\"f,\",g\nh,i";
+    ByteBuffer buffer = ByteBuffer.wrap(csv.getBytes(StandardCharsets.UTF_8));
+    List<List<String>> rows = new ArrayList<>();
+    for (ByteBuffer chunk : CsvReader.split(buffer, 3)) {
+      rows.addAll(read(chunk));
+    }
+    Assert.assertEquals(read(csv), rows);
+  }
+
+  @Test
+  public void quotedEmptyLineIsARow() {
+    Assert.assertEquals(
+        Arrays.asList(Arrays.asList("a"), Arrays.asList(""), Arrays.asList("b")),
+        read("a\n\"\"\n\nb\n"));
+  }
+
+  @Test
+  public void quoteInsideUnquotedFieldIsData() {
+    Assert.assertEquals(
+        Arrays.asList(Arrays.asList("a", "b\"c"), Arrays.asList("d", "e\nf"), Arrays.asList("g")),
+        read("a,b\"c\nd,\"e\nf\"\ng\n"));
+  }
+
+  @Test
+  public void splitIgnoresQuotesInsideUnquotedFields() {
+    String csv = "a,b\"c\nd,\"e\nf\"\ng,h\"\ni,\"j\"\"\nk\"\nl\n";
+    ByteBuffer buffer = ByteBuffer.wrap(csv.getBytes(StandardCharsets.UTF_8));
+    List<ByteBuffer> chunks = CsvReader.split(buffer, csv.length());
+    List<List<String>> rows = new ArrayList<>();
+    for (ByteBuffer chunk : chunks) {
+      rows.addAll(read(chunk));
+    }
+    Assert.assertEquals(read(csv), rows);
+    Assert.assertEquals(5, chunks.size());
+  }
+
+  @Test
+  public void parsesSignedNumbers() {
+    Assert.assertEquals(42, (int) parse("42", row -> row.getInt(0)));
+    Assert.assertEquals(42, (int) parse("+42", row -> row.getInt(0)));
+    Assert.assertEquals(-42, (int) parse("-42", row -> row.getInt(0)));
+    Assert.assertEquals(-7L, (long) parse("-7", row -> row.getLong(0)));
+    Assert.assertEquals(0.25, parse("+.25", row -> row.getDouble(0)), 0);
+    Assert.assertEquals(-12.5, parse("-12.5", row -> row.getDouble(0)), 0);
+    Assert.assertEquals(3.0, parse("3.", row -> row.getDouble(0)), 0);
+  }
+
+  @Test
+  public void parsesNumberLimits() {
+    Assert.assertEquals(Integer.MAX_VALUE, (int) parse("2147483647", row -> row.getInt(0)));
+    Assert.assertEquals(Integer.MIN_VALUE, (int) parse("-2147483648", row -> row.getInt(0)));
+    Assert.assertEquals(
+        Long.MAX_VALUE, (long) parse("9223372036854775807", row -> row.getLong(0)));
+    Assert.assertEquals(
+        Long.MIN_VALUE, (long) parse("-9223372036854775808", row -> row.getLong(0)));
+  }
+
+  @Test
+  public void parsesDoublesLikeJava() {
+    String[] cells = {
+      "1e3", "-2.5E-2", "6.02e+23", "0.1", "123456789.123456789", "9007199254740993",
+      "0.30000000000000004", "1.7976931348623157E308", "4.9e-324", "-0"
+    };
+    for (String cell : cells) {
+      Assert.assertEquals(
+          cell,
+          Double.doubleToLongBits(Double.parseDouble(cell)),
+          Double.doubleToLongBits(parse(cell, row -> row.getDouble(0))));
+    }
+  }
+
+  @Test
+  public void parsesQuotedNumbers() {
+    Assert.assertEquals(-5, (int) parse("\"-5\"", row -> row.getInt(0)));
+    Assert.assertEquals(1.5, parse("\"1.5\"", row -> row.getDouble(0)), 0);
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void emptyCellIsNotAnInt() {
+    parse("a,", row -> row.getInt(1));
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void quotedEmptyCellIsNotALong() {
+    parse("\"\"", row -> row.getLong(0));
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void emptyCellIsNotADouble() {
+    parse("a,", row -> row.getDouble(1));
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void signAloneIsNotALong() {
+    parse("-", row -> row.getLong(0));
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void exponentIsNotALong() {
+    parse("1e3", row -> row.getLong(0));
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void intOverflowIsRejected() {
+    parse("2147483648", row -> row.getInt(0));
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void longOverflowIsRejected() {
+    parse("9223372036854775808", row -> row.getLong(0));
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void longUnderflowIsRejected() {
+    parse("-9223372036854775809", row -> row.getLong(0));
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void malformedDoubleIsRejected() {
+    parse("1.2.3", row -> row.getDouble(0));
+  }
+
+  /** Reads a one-row CSV and applies the getter to it. */
+  private static <T> T parse(String csv, Function<CsvRow, T> getter) {
+    List<T> values = new ArrayList<>();
+    CsvReader.read(
+        ByteBuffer.wrap(csv.getBytes(StandardCharsets.UTF_8)),
+        row -> values.add(getter.apply(row)));
+    Assert.assertEquals(1, values.size());
+    return values.get(0);
+  }
+
+  private static List<List<String>> read(String csv) {
+    return read(ByteBuffer.wrap(csv.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private static List<List<String>> read(ByteBuffer buffer) {
+    List<List<String>> rows = new ArrayList<>();
+    CsvReader.read(buffer, row -> {
+      List<String> fields = new ArrayList<>();
+      for (int column = 0; column < row.size(); column++) {
+        fields.add(row.getString(column));
+      }
+      rows.add(fields);
+    });
+    return rows;
+  }
+}
@@ -0,0 +1,86 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.json;
+
+import com.google.gson.Gson;
+import com.google.sps.classes.Comment;
+import com.google.sps.classes.CommentPage;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the bytes allocated per serialized comment page by a new reflective Gson per request, as
+ * the servlets used to do, and by the shared serializer writing to the response stream.
+ * Run with: mvn test-compile exec:java -Dexec.mainClass=com.google.sps.json.SerializationBenchmark
+ * -Dexec.classpathScope=test
+ */
+public final class SerializationBenchmark {
+  private static final int WARMUP = 2000;
+  private static final int ITERATIONS = 20000;
+
+  private interface Serializer {
+    void serialize(CommentPage page, Writer out) throws IOException;
+  }
+
+  public static void main(String[] args) throws IOException {
+    List<Comment> comments = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      comments.add(new Comment("Comment number " + i + " about the moon landing", "user" + i, 40, i, i));
+    }
+    CommentPage page = new CommentPage(comments, "cursor");
+
+    report("new Gson per request", page, (p, out) -> out.write(new Gson().toJson(p)));
+    report("shared streaming Json", page, (p, out) -> Json.GSON.toJson(p, CommentPage.class, out));
+  }
+
+  private static void report(String name, CommentPage page, Serializer serializer) throws IOException {
+    Writer sink = new NullWriter();
+    for (int i = 0; i < WARMUP; i++) {
+      serializer.serialize(page, sink);
+    }
+
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long thread = Thread.currentThread().getId();
+    long bytesBefore = threads.getThreadAllocatedBytes(thread);
+    long start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      serializer.serialize(page, sink);
+    }
+    long nanos = System.nanoTime() - start;
+    long bytes = threads.getThreadAllocatedBytes(thread) - bytesBefore;
+
+    System.out.printf("%-24s %8d bytes/request %8.1f us/request%n",
+        name, bytes / ITERATIONS, nanos / 1000.0 / ITERATIONS);
+  }
+
+  // Stands in for the response writer so only the serializer's allocations are counted.
+  private static final class NullWriter extends Writer {
+    @Override
+    public void write(char[] buffer, int offset, int length) {}
+
+    @Override
+    public void write(String string, int offset, int length) {}
+
+    @Override
+    public void flush() {}
+
+    @Override
+    public void close() {}
+  }
+}
@@ -0,0 +1,303 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.load;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalMemcacheServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import com.google.apphosting.api.ApiProxy;
+import com.google.sps.constants.Constants;
+import com.google.sps.counters.ShardedLikeCounter;
+import com.google.sps.counters.WriteBehindLikeBuffer;
+import com.google.sps.servlets.DataServlet;
+import com.google.sps.servlets.LikeServlet;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Drives {@link DataServlet} and {@link LikeServlet} with a mix of feed reads, comment posts and likes
+ * against the local Datastore and Memcache of {@link LocalServiceTestHelper}, then prints throughput,
+ * latency percentiles per operation and the likes which were acknowledged but never stored.
+ *
+ * <p>Configured with system properties: load.threads (8), load.operations (5000), load.comments (50)
+ * seeded before the run, load.readPercent (70) and load.postPercent (10), the rest being likes. Set
+ * comments.likes.writeBehind=true to measure the write-behind buffer. Run with:
+ * mvn test-compile exec:java -Dexec.mainClass=com.google.sps.load.CommentLoadHarness
+ * -Dexec.classpathScope=test -Dexec.cleanupDaemonThreads=false
+ */
+public final class CommentLoadHarness {
+  private static final String READ = "read";
+  private static final String POST = "post";
+  private static final String LIKE = "like";
+
+  private final int threads = Integer.getInteger("load.threads", 8);
+  private final int operations = Integer.getInteger("load.operations", 5000);
+  private final int seedComments = Integer.getInteger("load.comments", 50);
+  private final int readPercent = Integer.getInteger("load.readPercent", 70);
+  private final int postPercent = Integer.getInteger("load.postPercent", 10);
+
+  private final LocalServiceTestHelper helper = new LocalServiceTestHelper(
+      new LocalDatastoreServiceTestConfig().setDefaultHighRepJobPolicyUnappliedJobPercentage(0),
+      new LocalMemcacheServiceTestConfig());
+
+  private final Map<String, List<Long>> latencies = new HashMap<>();
+  private final Map<String, AtomicLong> failures = new HashMap<>();
+  private final AtomicLong acknowledgedLikes = new AtomicLong();
+  private final AtomicLong requestCounter = new AtomicLong();
+
+  private DataServlet dataServlet;
+  private LikeServlet likeServlet;
+  private List<Long> commentIds;
+
+  public static void main(String[] args) throws Exception {
+    new CommentLoadHarness().run();
+  }
+
+  private void run() throws Exception {
+    helper.setUp();
+    try {
+      // The servlets read their feature flags when constructed, so after the services are up.
+      dataServlet = new DataServlet();
+      likeServlet = new LikeServlet();
+      for (String operation : Arrays.asList(READ, POST, LIKE)) {
+        latencies.put(operation, Collections.synchronizedList(new ArrayList<Long>()));
+        failures.put(operation, new AtomicLong());
+      }
+
+      for (int i = 0; i < seedComments; i++) {
+        post();
+      }
+      commentIds = storedCommentIds();
+
+      long elapsed = drive();
+      flushWriteBehind();
+      report(elapsed);
+    } finally {
+      helper.tearDown();
+    }
+  }
+
+  // Runs every operation on the pool, each worker thread borrowing the environment of the helper.
+  private long drive() throws Exception {
+    ApiProxy.Environment environment = ApiProxy.getCurrentEnvironment();
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    List<Future<?>> pending = new ArrayList<>();
+
+    long start = System.nanoTime();
+    for (int i = 0; i < operations; i++) {
+      pending.add(pool.submit(() -> {
+        ApiProxy.setEnvironmentForCurrentThread(environment);
+        int dice = ThreadLocalRandom.current().nextInt(100);
+        String operation = dice < readPercent ? READ : dice < readPercent + postPercent ? POST : LIKE;
+        timed(operation);
+      }));
+    }
+    for (Future<?> future : pending) {
+      future.get();
+    }
+    long elapsed = System.nanoTime() - start;
+
+    pool.shutdown();
+    pool.awaitTermination(1, TimeUnit.MINUTES);
+    return elapsed;
+  }
+
+  private void timed(String operation) {
+    long start = System.nanoTime();
+    boolean succeeded;
+    try {
+      if (READ.equals(operation)) {
+        succeeded = read();
+      } else if (POST.equals(operation)) {
+        succeeded = post();
+      } else {
+        succeeded = like();
+      }
+    } catch (Exception e) {
+      succeeded = false;
+    }
+    latencies.get(operation).add(System.nanoTime() - start);
+    if (!succeeded) {
+      failures.get(operation).incrementAndGet();
+    }
+  }
+
+  private boolean read() throws Exception {
+    Map<String, String> parameters = new HashMap<>();
+    String[] feeds = {"top", "newest"};
+    parameters.put("feed", feeds[ThreadLocalRandom.current().nextInt(feeds.length)]);
+    FakeResponse response = new FakeResponse();
+    dataServlet.doGet(request(parameters, Collections.<String, String>emptyMap()), response.proxy());
+    return response.status == HttpServletResponse.SC_OK;
+  }
+
+  // Every post comes from a new user and address so the rate limiter stays out of the measurement.
+  private boolean post() throws Exception {
+    long n = requestCounter.incrementAndGet();
+    Map<String, String> parameters = new HashMap<>();
+    parameters.put("user", "user" + n);
+    parameters.put("comment", "Load comment " + n + " about the Apollo missions");
+    FakeResponse response = new FakeResponse();
+    dataServlet.doPost(request(parameters, Collections.<String, String>emptyMap()), response.proxy());
+    return response.status == HttpServletResponse.SC_OK;
+  }
+
+  private boolean like() throws Exception {
+    long id = commentIds.get(ThreadLocalRandom.current().nextInt(commentIds.size()));
+    FakeResponse response = new FakeResponse();
+    likeServlet.doPost(request(Collections.<String, String>emptyMap(),
+        Collections.singletonMap("id", String.valueOf(id))), response.proxy());
+    if (response.status != HttpServletResponse.SC_OK) {
+      return false;
+    }
+    acknowledgedLikes.incrementAndGet();
+    return true;
+  }
+
+  private List<Long> storedCommentIds() {
+    DatastoreService dataStore = DatastoreServiceFactory.getDatastoreService();
+    List<Long> ids = new ArrayList<>();
+    for (Entity entity : dataStore.prepare(new Query(Constants.COMMENT_ENTITY).setKeysOnly())
+        .asIterable()) {
+      ids.add(entity.getKey().getId());
+    }
+    return ids;
+  }
+
+  private void flushWriteBehind() {
+    if (Boolean.getBoolean(Constants.LIKES_WRITE_BEHIND_PROPERTY)) {
+      WriteBehindLikeBuffer.getInstance().flush(new ShardedLikeCounter(DatastoreServiceFactory.getDatastoreService()));
+    }
+  }
+
+  // The shards are the source of truth, cached totals and the likes property may lag behind them.
+  private long storedLikes() {
+    DatastoreService dataStore = DatastoreServiceFactory.getDatastoreService();
+    long total = 0;
+    for (Entity shard : dataStore.prepare(new Query(Constants.LIKE_SHARD_ENTITY))
+        .asIterable(FetchOptions.Builder.withChunkSize(500))) {
+      total += (Long) shard.getProperty("count");
+    }
+    return total;
+  }
+
+  private void report(long elapsedNanos) {
+    System.out.printf("%d operations on %d threads in %.2f s, %.1f operations/s%n",
+        operations, threads, elapsedNanos / 1e9, operations / (elapsedNanos / 1e9));
+    for (String operation : Arrays.asList(READ, POST, LIKE)) {
+      List<Long> sorted = new ArrayList<>(latencies.get(operation));
+      Collections.sort(sorted);
+      System.out.printf("%-5s %6d done %5d failed   p50 %7.2f ms   p95 %7.2f ms   p99 %7.2f ms%n",
+          operation, sorted.size(), failures.get(operation).get(),
+          percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99));
+    }
+
+    long stored = storedLikes();
+    System.out.printf("likes acknowledged %d, stored %d, lost updates %d%n",
+        acknowledgedLikes.get(), stored, acknowledgedLikes.get() - stored);
+
+    // The per user aggregates have to add up to the comments and shards they count.
+    long statsComments = 0;
+    long statsLikes = 0;
+    for (Entity stats : DatastoreServiceFactory.getDatastoreService()
+        .prepare(new Query(Constants.USER_STATS_ENTITY)).asIterable()) {
+      statsComments += (Long) stats.getProperty("comments");
+      statsLikes += (Long) stats.getProperty("likes");
+    }
+    System.out.printf("user stats count %d of %d comments and %d of %d likes%n",
+        statsComments, storedCommentIds().size(), statsLikes, stored);
+  }
+
+  private static double percentile(List<Long> sorted, int percentile) {
+    if (sorted.isEmpty()) {
+      return 0;
+    }
+    int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+    return sorted.get(Math.max(0, index)) / 1e6;
+  }
+
+  private HttpServletRequest request(Map<String, String> parameters, Map<String, String> headers) {
+    String address = "10.0." + requestCounter.incrementAndGet() % 65536 / 256 + "." + requestCounter.get() % 256;
+    return (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] {HttpServletRequest.class}, (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getParameter":
+              return parameters.get(args[0]);
+            case "getHeader":
+              return headers.get(args[0]);
+            case "getRemoteAddr":
+              return address;
+            default:
+              return defaultValue(method.getReturnType());
+          }
+        });
+  }
+
+  /** Records what a servlet wrote and the status it answered with. */
+  private static final class FakeResponse {
+    private final StringWriter body = new StringWriter();
+    private final PrintWriter writer = new PrintWriter(body);
+    private int status = HttpServletResponse.SC_OK;
+
+    private HttpServletResponse proxy() {
+      return (HttpServletResponse) Proxy.newProxyInstance(FakeResponse.class.getClassLoader(),
+          new Class<?>[] {HttpServletResponse.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+              case "getWriter":
+                return writer;
+              case "sendError":
+              case "setStatus":
+                status = (Integer) args[0];
+                return null;
+              default:
+                return defaultValue(method.getReturnType());
+            }
+          });
+    }
+  }
+
+  private static Object defaultValue(Class<?> type) {
+    if (type == boolean.class) {
+      return false;
+    }
+    if (type == int.class) {
+      return 0;
+    }
+    if (type == long.class) {
+      return 0L;
+    }
+    return null;
+  }
+}
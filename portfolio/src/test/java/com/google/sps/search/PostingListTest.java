@@ -0,0 +1,65 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.search;
+
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class PostingListTest {
+  @Test
+  public void gapsOfEveryVarintLengthRoundTrip() {
+    int[] docs = {0, 1, 127, 128, 16511, 2113663, 270549119, Integer.MAX_VALUE};
+    Assert.assertArrayEquals(docs, of(docs).toArray());
+  }
+
+  @Test
+  public void emptyList() {
+    Assert.assertArrayEquals(new int[0], new PostingList().toArray());
+  }
+
+  @Test
+  public void intersectKeepsCommonDocuments() {
+    PostingList list = of(2, 3, 5, 8, 13, 300);
+    int[] matches = {1, 2, 5, 6, 300, 301};
+
+    int kept = list.intersect(matches, matches.length);
+
+    Assert.assertEquals(3, kept);
+    Assert.assertArrayEquals(new int[] {2, 5, 300}, Arrays.copyOf(matches, kept));
+  }
+
+  @Test
+  public void intersectStopsWhenTheListRunsOut() {
+    int[] matches = {7, 9};
+    Assert.assertEquals(0, of(1, 2, 3).intersect(matches, matches.length));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void documentsMustIncrease() {
+    of(4, 4);
+  }
+
+  private static PostingList of(int... docs) {
+    PostingList list = new PostingList();
+    for (int doc : docs) {
+      list.add(doc);
+    }
+    return list;
+  }
+}
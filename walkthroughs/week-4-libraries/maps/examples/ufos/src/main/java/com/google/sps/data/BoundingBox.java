@@ -0,0 +1,46 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+/**
+ * A viewport in degrees, as reported by the map. West is greater than east when the viewport
+ * crosses the antimeridian.
+ */
+public final class BoundingBox {
+  final double south;
+  final double west;
+  final double north;
+  final double east;
+
+  public BoundingBox(double south, double west, double north, double east) {
+    if (!(south >= -90 && north <= 90 && south <= north)) {
+      throw new IllegalArgumentException("Expected -90 <= south <= north <= 90");
+    }
+    if (!(west >= -180 && west <= 180 && east >= -180 && east <= 180)) {
+      throw new IllegalArgumentException("Expected west and east within -180 and 180");
+    }
+    this.south = south;
+    this.west = west;
+    this.north = north;
+    this.east = east;
+  }
+
+  public boolean contains(double lat, double lng) {
+    if (lat < south || lat > north) {
+      return false;
+    }
+    return west <= east ? lng >= west && lng <= east : lng >= west || lng <= east;
+  }
+}
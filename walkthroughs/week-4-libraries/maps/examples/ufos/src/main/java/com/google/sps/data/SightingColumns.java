@@ -0,0 +1,58 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Scanner;
+
+/** The lat and lng of every UFO sighting, in the order of the CSV file they were read from. */
+public final class SightingColumns {
+  public final double[] lats;
+  public final double[] lngs;
+
+  private SightingColumns(double[] lats, double[] lngs) {
+    this.lats = lats;
+    this.lngs = lngs;
+  }
+
+  /** Reads lines of lat,lng. */
+  public static SightingColumns read(InputStream csv) {
+    double[] lats = new double[1024];
+    double[] lngs = new double[1024];
+    int size = 0;
+
+    Scanner scanner = new Scanner(csv);
+    while (scanner.hasNextLine()) {
+      String line = scanner.nextLine();
+      String[] cells = line.split(",");
+
+      if (size == lats.length) {
+        lats = Arrays.copyOf(lats, size * 2);
+        lngs = Arrays.copyOf(lngs, size * 2);
+      }
+      lats[size] = Double.parseDouble(cells[0]);
+      lngs[size] = Double.parseDouble(cells[1]);
+      size++;
+    }
+    scanner.close();
+
+    return new SightingColumns(Arrays.copyOf(lats, size), Arrays.copyOf(lngs, size));
+  }
+
+  public int size() {
+    return lats.length;
+  }
+}
@@ -0,0 +1,198 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Counts of points per map tile for every zoom level up to a maximum. Each 256 pixel Web Mercator
+ * tile is split into 16 x 16 bins of 16 pixels and only the non-empty bins are kept.
+ *
+ * <p>The non-empty bins of the maximum zoom are kept in Z-order, where a tile or bin of any zoom is
+ * a contiguous range of the bins inside it. Coarse zooms, whose tiles would sum many bins, are
+ * merged once at startup. They have at most 256 * 4^zoom bins, about 1 MB up to {@link
+ * #STORED_ZOOM}. Deeper tiles are summed from the maximum zoom on request, which costs about 12
+ * bytes per non-empty bin of the maximum zoom, at most 12 bytes per point.
+ *
+ * <p>A tile is encoded as the number of non-empty bins followed by, for each of them in order, the
+ * bin's index (row * 16 + column) minus the previous one's and its count. All numbers are unsigned
+ * LEB128 varints, so most bins take two bytes and an empty tile takes one.
+ */
+public final class TileCounts {
+  /** The deepest zoom merged at startup. */
+  public static final int STORED_ZOOM = 4;
+  // Z-order codes of bins need 2 * (4 + zoom) bits.
+  private static final int MAX_ZOOM = 27;
+  private static final int BIN_BITS = 4;
+  private static final int BINS = 1 << BIN_BITS;
+  private static final double MAX_SIN_LAT = 0.9999;
+
+  private final int maxZoom;
+  // The non-empty bins of the maximum zoom by Z-order code, and their counts.
+  private final long[] bins;
+  private final int[] binCounts;
+  // The same for the zooms up to STORED_ZOOM.
+  private final long[][] storedBins;
+  private final int[][] storedCounts;
+
+  /** @throws IllegalArgumentException if the maximum zoom is not between 0 and 27 */
+  public TileCounts(double[] lats, double[] lngs, int maxZoom) {
+    if (maxZoom < 0 || maxZoom > MAX_ZOOM) {
+      throw new IllegalArgumentException("Expected a maximum zoom between 0 and " + MAX_ZOOM);
+    }
+    this.maxZoom = maxZoom;
+
+    long binsPerAxis = (long) BINS << maxZoom;
+    long[] codes = new long[lats.length];
+    for (int i = 0; i < lats.length; i++) {
+      double sinLat = Math.max(-MAX_SIN_LAT, Math.min(MAX_SIN_LAT, Math.sin(Math.toRadians(lats[i]))));
+      double x = (lngs[i] + 180) / 360;
+      double y = 0.5 - Math.log((1 + sinLat) / (1 - sinLat)) / (4 * Math.PI);
+      codes[i] = zOrder(bin(x, binsPerAxis), bin(y, binsPerAxis));
+    }
+    Arrays.sort(codes);
+    int[] counts = new int[codes.length];
+    Arrays.fill(counts, 1);
+    int size = merge(codes, counts, codes.length, 0);
+    bins = Arrays.copyOf(codes, size);
+    binCounts = Arrays.copyOf(counts, size);
+
+    // Dropping the low bits of Z-order codes gives the bins of a coarser zoom, still sorted.
+    int stored = Math.min(STORED_ZOOM, maxZoom);
+    storedBins = new long[stored + 1][];
+    storedCounts = new int[stored + 1][];
+    int codeZoom = maxZoom;
+    for (int zoom = stored; zoom >= 0; zoom--) {
+      if (zoom == maxZoom) {
+        storedBins[zoom] = bins;
+        storedCounts[zoom] = binCounts;
+        continue;
+      }
+      size = merge(codes, counts, size, 2 * (codeZoom - zoom));
+      codeZoom = zoom;
+      storedBins[zoom] = Arrays.copyOf(codes, size);
+      storedCounts[zoom] = Arrays.copyOf(counts, size);
+    }
+  }
+
+  public int maxZoom() {
+    return maxZoom;
+  }
+
+  /**
+   * Returns the encoded counts of a tile.
+   *
+   * @throws IllegalArgumentException if there is no such tile up to the maximum zoom
+   */
+  public byte[] tile(int zoom, int x, int y) {
+    if (zoom < 0 || zoom > maxZoom) {
+      throw new IllegalArgumentException("Expected a zoom between 0 and " + maxZoom);
+    }
+    if (x < 0 || y < 0 || x >= 1 << zoom || y >= 1 << zoom) {
+      throw new IllegalArgumentException("No tile " + x + "/" + y + " at zoom " + zoom);
+    }
+
+    // The tile's bins are the 256 codes after its first one, at the zoom of the codes searched.
+    long[] codes = zoom < storedBins.length ? storedBins[zoom] : bins;
+    int[] codeCounts = zoom < storedBins.length ? storedCounts[zoom] : binCounts;
+    int shift = zoom < storedBins.length ? 0 : 2 * (maxZoom - zoom);
+    long first = zOrder((long) x << BIN_BITS, (long) y << BIN_BITS);
+    int from = lowerBound(codes, first << shift);
+    int to = lowerBound(codes, (first + BINS * BINS) << shift);
+
+    int[] tileCounts = new int[BINS * BINS];
+    int nonEmpty = 0;
+    for (int i = from; i < to; i++) {
+      int code = (int) ((codes[i] >>> shift) - first);
+      int bin = compact(code >>> 1) << BIN_BITS | compact(code);
+      if (tileCounts[bin] == 0) {
+        nonEmpty++;
+      }
+      tileCounts[bin] += codeCounts[i];
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream(1 + 3 * nonEmpty);
+    writeVarint(out, nonEmpty);
+    int previous = 0;
+    for (int bin = 0; bin < tileCounts.length; bin++) {
+      if (tileCounts[bin] > 0) {
+        writeVarint(out, bin - previous);
+        writeVarint(out, tileCounts[bin]);
+        previous = bin;
+      }
+    }
+    return out.toByteArray();
+  }
+
+  /*
+   * Shifts the first size sorted codes right by the given bits and sums the counts of equal ones, in
+   * place. Returns the number of distinct codes left at the start of the arrays.
+   */
+  private static int merge(long[] codes, int[] counts, int size, int shift) {
+    int merged = 0;
+    for (int i = 0; i < size; i++) {
+      long code = codes[i] >>> shift;
+      if (merged > 0 && codes[merged - 1] == code) {
+        counts[merged - 1] += counts[i];
+      } else {
+        codes[merged] = code;
+        counts[merged] = counts[i];
+        merged++;
+      }
+    }
+    return merged;
+  }
+
+  // Interleaves the bits of the bin coordinates, x in the even bits and y in the odd ones.
+  private static long zOrder(long binX, long binY) {
+    return spread(binX) | spread(binY) << 1;
+  }
+
+  private static long spread(long value) {
+    value &= 0xffffffffL;
+    value = (value | value << 16) & 0x0000ffff0000ffffL;
+    value = (value | value << 8) & 0x00ff00ff00ff00ffL;
+    value = (value | value << 4) & 0x0f0f0f0f0f0f0f0fL;
+    value = (value | value << 2) & 0x3333333333333333L;
+    return (value | value << 1) & 0x5555555555555555L;
+  }
+
+  // The even bits of the 8 bit Z-order code of a bin in its tile.
+  private static int compact(int code) {
+    return (code & 1) | (code >> 1 & 2) | (code >> 2 & 4) | (code >> 3 & 8);
+  }
+
+  private static long bin(double coordinate, long bins) {
+    return Math.min(bins - 1, Math.max(0, (long) (coordinate * bins)));
+  }
+
+  private static int lowerBound(long[] sorted, long key) {
+    int index = Arrays.binarySearch(sorted, key);
+    if (index < 0) {
+      return -index - 1;
+    }
+    // Keys are unique after merging.
+    return index;
+  }
+
+  private static void writeVarint(ByteArrayOutputStream out, int value) {
+    while ((value & ~0x7f) != 0) {
+      out.write((value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    out.write(value);
+  }
+}
@@ -14,45 +14,115 @@
 
 package com.google.sps.servlets;
 
-import com.google.sps.data.UfoSighting;
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.data.BoundingBox;
+import com.google.sps.data.Cluster;
+import com.google.sps.data.PointGrid;
+import com.google.sps.data.SightingColumns;
+import com.google.sps.data.UfoSighting;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Scanner;
+import java.util.List;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-/** Returns UFO data as a JSON array, e.g. [{"lat": 38.4404675, "lng": -122.7144313}] */
+/**
+ * Returns UFO data as a JSON array, e.g. [{"lat": 38.4404675, "lng": -122.7144313}]
+ *
+ * <p>Given a viewport with south, west, north and east only the sightings inside it are sent, as
+ * {"clusters": [{"lat": 38.5, "lng": -122.5, "count": 12}], "sightings": [...]}. Sightings close to
+ * each other at the optional zoom level, between 0 and 22, are merged into clusters.
+ */
 @WebServlet("/ufo-data")
 public class UfoDataServlet extends HttpServlet {
+  private static final double GRID_CELL_DEGREES = 1;
 
-  private Collection<UfoSighting> ufoSightings;
+  private final Gson gson = new Gson();
+  private PointGrid grid;
+  private double[] lats;
+  private double[] lngs;
+  private String json;
 
   @Override
   public void init() {
-    ufoSightings = new ArrayList<>();
-
-    Scanner scanner = new Scanner(getServletContext().getResourceAsStream("/WEB-INF/ufo-data.csv"));
-    while (scanner.hasNextLine()) {
-      String line = scanner.nextLine();
-      String[] cells = line.split(",");
-
-      double lat = Double.parseDouble(cells[0]);
-      double lng = Double.parseDouble(cells[1]);
+    SightingColumns sightings =
+        SightingColumns.read(getServletContext().getResourceAsStream("/WEB-INF/ufo-data.csv"));
+    lats = sightings.lats;
+    lngs = sightings.lngs;
 
-      ufoSightings.add(new UfoSighting(lat, lng));
+    List<UfoSighting> ufoSightings = new ArrayList<>();
+    for (int i = 0; i < sightings.size(); i++) {
+      ufoSightings.add(new UfoSighting(lats[i], lngs[i]));
     }
-    scanner.close();
+    grid = new PointGrid(lats, lngs, GRID_CELL_DEGREES);
+    json = gson.toJson(ufoSightings);
   }
 
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    if (request.getParameter("south") == null) {
+      response.setContentType("application/json");
+      response.getWriter().println(json);
+      return;
+    }
+
+    List<Integer> sightings = new ArrayList<>();
+    List<Cluster> clusters = new ArrayList<>();
+    try {
+      BoundingBox box = new BoundingBox(
+          doubleParameter(request, "south"),
+          doubleParameter(request, "west"),
+          doubleParameter(request, "north"),
+          doubleParameter(request, "east"));
+      String zoom = request.getParameter("zoom");
+      if (zoom == null || zoom.isEmpty()) {
+        grid.query(box, sightings::add);
+      } else {
+        for (Cluster cluster : grid.cluster(box, Integer.parseInt(zoom))) {
+          if (cluster.count() == 1) {
+            sightings.add(cluster.firstPoint());
+          } else {
+            clusters.add(cluster);
+          }
+        }
+      }
+    } catch (IllegalArgumentException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+
     response.setContentType("application/json");
-    Gson gson = new Gson();
-    String json = gson.toJson(ufoSightings);
-    response.getWriter().println(json);
+    JsonWriter out = gson.newJsonWriter(response.getWriter());
+    out.beginObject();
+    out.name("clusters").beginArray();
+    for (Cluster cluster : clusters) {
+      out.beginObject();
+      out.name("lat").value(cluster.lat());
+      out.name("lng").value(cluster.lng());
+      out.name("count").value(cluster.count());
+      out.endObject();
+    }
+    out.endArray();
+    out.name("sightings").beginArray();
+    for (int sighting : sightings) {
+      out.beginObject();
+      out.name("lat").value(lats[sighting]);
+      out.name("lng").value(lngs[sighting]);
+      out.endObject();
+    }
+    out.endArray();
+    out.endObject();
+    out.flush();
+  }
+
+  private double doubleParameter(HttpServletRequest request, String parameter) {
+    String value = request.getParameter(parameter);
+    if (value == null) {
+      throw new IllegalArgumentException("Missing " + parameter);
+    }
+    return Double.parseDouble(value);
   }
 }
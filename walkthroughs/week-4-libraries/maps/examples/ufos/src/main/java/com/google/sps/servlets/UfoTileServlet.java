@@ -0,0 +1,65 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.data.SightingColumns;
+import com.google.sps.data.TileCounts;
+import java.io.IOException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Returns the number of UFO sightings in 16 pixel bins of a map tile, e.g. /ufo-tiles/7/21/49, in
+ * the binary format described in {@link TileCounts}. Counts are kept for every zoom level up to
+ * {@link #MAX_ZOOM}, closer views should ask {@link UfoDataServlet} for the sightings. Deeper zooms
+ * only cost memory per sighting once, not once per zoom.
+ */
+@WebServlet("/ufo-tiles/*")
+public class UfoTileServlet extends HttpServlet {
+  public static final int MAX_ZOOM = 10;
+
+  private TileCounts tiles;
+
+  @Override
+  public void init() {
+    SightingColumns sightings =
+        SightingColumns.read(getServletContext().getResourceAsStream("/WEB-INF/ufo-data.csv"));
+    tiles = new TileCounts(sightings.lats, sightings.lngs, MAX_ZOOM);
+  }
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    byte[] tile;
+    try {
+      String path = request.getPathInfo();
+      String[] parts = path == null ? new String[0] : path.substring(1).split("/");
+      if (parts.length != 3) {
+        throw new IllegalArgumentException("Expected /ufo-tiles/zoom/x/y");
+      }
+      tile = tiles.tile(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+    } catch (IllegalArgumentException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+
+    // The counts only change with a new deployment.
+    response.setHeader("Cache-Control", "public, max-age=3600");
+    response.setContentType("application/octet-stream");
+    response.setContentLength(tile.length);
+    response.getOutputStream().write(tile);
+  }
+}
@@ -12,16 +12,117 @@
 // See the License for the specific language governing permissions and
 // limitations under the License.
 
-/** Fetches UFO sightings data from the server and displays it in a map. */
+// Zoom levels up to this one show counts from /ufo-tiles, closer ones show the sightings.
+const MAX_TILE_ZOOM = 10;
+const TILE_SIZE = 256;
+const TILE_BINS = 16;
+
+/**
+ * Displays UFO sightings in a map. Far out the map shows how many sightings fall in every 16 pixel
+ * square of a tile, drawn from counts the server aggregated per tile. Close in it fetches only the
+ * sightings in view whenever the map stops moving, merging close ones into a marker with their count.
+ */
 function createUfoSightingsMap() {
-  fetch('/ufo-data').then(response => response.json()).then((ufoSightings) => {
-    const map = new google.maps.Map(
-        document.getElementById('map'),
-        {center: {lat: 35.78613674, lng: -119.4491591}, zoom: 7});
-
-    ufoSightings.forEach((ufoSighting) => {
-      new google.maps.Marker(
-          {position: {lat: ufoSighting.lat, lng: ufoSighting.lng}, map: map});
+  const map = new google.maps.Map(
+      document.getElementById('map'),
+      {center: {lat: 35.78613674, lng: -119.4491591}, zoom: 7});
+
+  map.overlayMapTypes.push({
+    tileSize: new google.maps.Size(TILE_SIZE, TILE_SIZE),
+    getTile: createCountTile,
+    releaseTile: () => {},
+  });
+
+  let markers = [];
+  map.addListener('idle', () => {
+    markers.forEach((marker) => marker.setMap(null));
+    markers = [];
+    if (map.getZoom() <= MAX_TILE_ZOOM) {
+      return;
+    }
+
+    const bounds = map.getBounds();
+    const params = new URLSearchParams({
+      south: bounds.getSouthWest().lat(),
+      west: bounds.getSouthWest().lng(),
+      north: bounds.getNorthEast().lat(),
+      east: bounds.getNorthEast().lng(),
+      zoom: map.getZoom(),
+    });
+    fetch('/ufo-data?' + params).then(response => response.json()).then((viewport) => {
+      viewport.clusters.forEach((cluster) => {
+        markers.push(new google.maps.Marker({
+          position: {lat: cluster.lat, lng: cluster.lng},
+          label: String(cluster.count),
+          map: map,
+        }));
+      });
+      viewport.sightings.forEach((ufoSighting) => {
+        markers.push(new google.maps.Marker(
+            {position: {lat: ufoSighting.lat, lng: ufoSighting.lng}, map: map}));
+      });
     });
   });
 }
+
+/** Returns a canvas drawing a circle for every non-empty bin of a tile, sized by its count. */
+function createCountTile(coord, zoom, ownerDocument) {
+  const canvas = ownerDocument.createElement('canvas');
+  canvas.width = TILE_SIZE;
+  canvas.height = TILE_SIZE;
+  const tiles = 1 << zoom;
+  if (zoom > MAX_TILE_ZOOM || coord.y < 0 || coord.y >= tiles) {
+    return canvas;
+  }
+
+  const x = ((coord.x % tiles) + tiles) % tiles;
+  fetch(`/ufo-tiles/${zoom}/${x}/${coord.y}`)
+      .then((response) => {
+        if (!response.ok) {
+          throw new Error(response.statusText);
+        }
+        return response.arrayBuffer();
+      })
+      .then((buffer) => {
+        const context = canvas.getContext('2d');
+        const binSize = TILE_SIZE / TILE_BINS;
+        context.fillStyle = 'rgba(200, 0, 0, 0.6)';
+        decodeTileCounts(new Uint8Array(buffer), (bin, count) => {
+          const centerX = (bin % TILE_BINS + 0.5) * binSize;
+          const centerY = (Math.floor(bin / TILE_BINS) + 0.5) * binSize;
+          const radius = Math.min(binSize / 2, 2 + Math.log2(count) * 1.5);
+          context.beginPath();
+          context.arc(centerX, centerY, radius, 0, 2 * Math.PI);
+          context.fill();
+        });
+      })
+      // A tile that failed to load stays blank rather than showing bins decoded from an error page.
+      .catch(error => console.log(error));
+  return canvas;
+}
+
+/**
+ * Calls back with the bin index and count of every bin in a tile, sent as a count of bins then a
+ * bin delta and count for each, all as unsigned LEB128 varints.
+ */
+function decodeTileCounts(bytes, callback) {
+  let offset = 0;
+  const readVarint = () => {
+    let value = 0;
+    let shift = 0;
+    let byte;
+    do {
+      byte = bytes[offset++];
+      value += (byte & 0x7f) * Math.pow(2, shift);
+      shift += 7;
+    } while (byte & 0x80);
+    return value;
+  };
+
+  const bins = readVarint();
+  let bin = 0;
+  for (let i = 0; i < bins; i++) {
+    bin += readVarint();
+    callback(bin, readVarint());
+  }
+}
@@ -0,0 +1,171 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.sps.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class PointGridTest {
+  private static final BoundingBox WORLD = new BoundingBox(-90, -180, 90, 180);
+
+  @Test
+  public void boxCrossingTheAntimeridianHoldsBothEdges() {
+    double[] lats = {10, 10, 10, 10, 10};
+    double[] lngs = {175, 180, -180, -175, 0};
+    PointGrid grid = new PointGrid(lats, lngs, 10);
+
+    Assert.assertEquals(Arrays.asList(0, 1, 2, 3), query(grid, new BoundingBox(0, 170, 20, -170)));
+  }
+
+  @Test
+  public void boxWrappingIntoItsFirstCellVisitsItOnce() {
+    // West and east are in the same cell, the box is all but a sliver of it.
+    double[] lats = {0, 0, 0, 0};
+    double[] lngs = {0.5, 3, 7, -90};
+    PointGrid grid = new PointGrid(lats, lngs, 10);
+
+    Assert.assertEquals(Arrays.asList(0, 2, 3), query(grid, new BoundingBox(-10, 5, 10, 1)));
+  }
+
+  @Test
+  public void borderCellsOnlyGivePointsInTheBox() {
+    // The box covers parts of the cells around it, points on its edges are in it.
+    double[] lats = {10, 20, 15, 9.99, 20.01, 15, 15};
+    double[] lngs = {10, 20, 15, 15, 15, 9.99, 20.01};
+    PointGrid grid = new PointGrid(lats, lngs, 3);
+    BoundingBox box = new BoundingBox(10, 10, 20, 20);
+
+    Assert.assertEquals(Arrays.asList(0, 1, 2), query(grid, box));
+    Assert.assertEquals(brute(lats, lngs, box), query(grid, box));
+  }
+
+  @Test
+  public void worldHoldsThePolesAndTheAntimeridian() {
+    double[] lats = {90, -90, 0, 0};
+    double[] lngs = {0, 0, 180, -180};
+    PointGrid grid = new PointGrid(lats, lngs, 1);
+
+    Assert.assertEquals(Arrays.asList(0, 1, 2, 3), query(grid, WORLD));
+  }
+
+  @Test
+  public void queriesMatchContains() {
+    Random random = new Random(7);
+    double[] lats = new double[2000];
+    double[] lngs = new double[2000];
+    for (int point = 0; point < lats.length; point++) {
+      lats[point] = random.nextDouble() * 180 - 90;
+      lngs[point] = random.nextDouble() * 360 - 180;
+    }
+    PointGrid grid = new PointGrid(lats, lngs, 7);
+
+    for (int box = 0; box < 200; box++) {
+      double south = random.nextDouble() * 180 - 90;
+      double north = south + random.nextDouble() * (90 - south);
+      BoundingBox bounds = new BoundingBox(
+          south, random.nextDouble() * 360 - 180, north, random.nextDouble() * 360 - 180);
+      Assert.assertEquals(brute(lats, lngs, bounds), query(grid, bounds));
+    }
+  }
+
+  @Test
+  public void clusterCountsSumToTheQueryCount() {
+    Random random = new Random(11);
+    double[] lats = new double[3000];
+    double[] lngs = new double[3000];
+    for (int point = 0; point < lats.length; point++) {
+      // Half the points in a dense spot, so deep zooms still merge some.
+      boolean dense = point % 2 == 0;
+      lats[point] = dense ? 40 + random.nextDouble() * 1e-4 : random.nextDouble() * 180 - 90;
+      lngs[point] = dense ? -100 + random.nextDouble() * 1e-4 : random.nextDouble() * 360 - 180;
+    }
+    PointGrid grid = new PointGrid(lats, lngs, 1);
+
+    BoundingBox[] boxes = {WORLD, new BoundingBox(30, 170, 60, -60), new BoundingBox(39, -101, 41, -99)};
+    for (BoundingBox box : boxes) {
+      int count = query(grid, box).size();
+      for (int zoom = 0; zoom <= PointGrid.MAX_ZOOM; zoom++) {
+        int sum = 0;
+        for (Cluster cluster : grid.cluster(box, zoom)) {
+          Assert.assertTrue(box.contains(cluster.lat(), cluster.lng()));
+          sum += cluster.count();
+        }
+        Assert.assertEquals("zoom " + zoom, count, sum);
+      }
+    }
+  }
+
+  @Test
+  public void antimeridianAndPoleClustersStayApart() {
+    // At zoom 0 clusters are 90 degrees wide, the antimeridian must not wrap into the next row.
+    double[] lats = {0, 90};
+    double[] lngs = {180, -170};
+    PointGrid grid = new PointGrid(lats, lngs, 10);
+
+    List<Cluster> clusters = grid.cluster(WORLD, 0);
+    Assert.assertEquals(2, clusters.size());
+    for (Cluster cluster : clusters) {
+      Assert.assertEquals(1, cluster.count());
+      Assert.assertEquals(lats[cluster.firstPoint()], cluster.lat(), 0);
+      Assert.assertEquals(lngs[cluster.firstPoint()], cluster.lng(), 0);
+    }
+  }
+
+  @Test
+  public void deepestZoomKeepsDistinctPointsApart() {
+    double[] lats = {45, 45, 45};
+    double[] lngs = {90, 90.001, 90};
+    PointGrid grid = new PointGrid(lats, lngs, 1);
+
+    Assert.assertEquals(1, grid.cluster(WORLD, 0).size());
+    Assert.assertEquals(2, grid.cluster(WORLD, PointGrid.MAX_ZOOM).size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void zoomBelowZeroIsRejected() {
+    new PointGrid(new double[0], new double[0], 1).cluster(WORLD, -1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void zoomPastMaxIsRejected() {
+    new PointGrid(new double[0], new double[0], 1).cluster(WORLD, PointGrid.MAX_ZOOM + 1);
+  }
+
+  private static List<Integer> query(PointGrid grid, BoundingBox box) {
+    List<Integer> points = new ArrayList<>();
+    grid.query(box, points::add);
+    Collections.sort(points);
+    return points;
+  }
+
+  private static List<Integer> brute(double[] lats, double[] lngs, BoundingBox box) {
+    List<Integer> points = new ArrayList<>();
+    for (int point = 0; point < lats.length; point++) {
+      if (box.contains(lats[point], lngs[point])) {
+        points.add(point);
+      }
+    }
+    return points;
+  }
+}
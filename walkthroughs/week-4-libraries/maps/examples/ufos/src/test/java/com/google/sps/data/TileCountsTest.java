@@ -0,0 +1,200 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public final class TileCountsTest {
+  // Past the stored zooms, so the deepest ones are summed on request.
+  private static final int MAX_ZOOM = TileCounts.STORED_ZOOM + 2;
+
+  @Test
+  public void worldTileHoldsEveryPoint() {
+    TileCounts counts = counts(new double[] {0, 0, 89, -89}, new double[] {0, 0, 0, 0});
+
+    // Null Island is in the middle bin, the poles are clamped to the top and bottom rows.
+    Map<Integer, Integer> expected = new TreeMap<>();
+    expected.put(8, 1);
+    expected.put(8 * 16 + 8, 2);
+    expected.put(15 * 16 + 8, 1);
+    Assert.assertEquals(expected, decode(counts.tile(0, 0, 0)));
+  }
+
+  @Test
+  public void pointsOnTileEdgesGoToTheTileAfterTheEdge() {
+    TileCounts counts = counts(new double[] {0, 0}, new double[] {0, -0.001});
+
+    Assert.assertEquals(bins(0, 1), decode(counts.tile(1, 1, 1)));
+    Assert.assertEquals(bins(15, 1), decode(counts.tile(1, 0, 1)));
+  }
+
+  @Test
+  public void antimeridianIsAtTheWorldEdges() {
+    TileCounts counts = counts(new double[] {1, 1}, new double[] {180, -180});
+
+    Assert.assertEquals(bins(15 * 16 + 15, 1), decode(counts.tile(2, 3, 1)));
+    Assert.assertEquals(bins(15 * 16, 1), decode(counts.tile(2, 0, 1)));
+  }
+
+  @Test
+  public void latitudesPastMercatorAreClampedToTheEdgeTiles() {
+    TileCounts counts =
+        counts(new double[] {85.1, 90, -85.1, -90}, new double[] {-180, -180, 179.9, 179.9});
+
+    Assert.assertEquals(bins(0, 2), decode(counts.tile(MAX_ZOOM, 0, 0)));
+    int last = (1 << MAX_ZOOM) - 1;
+    Assert.assertEquals(bins(15 * 16 + 15, 2), decode(counts.tile(MAX_ZOOM, last, last)));
+  }
+
+  @Test
+  public void emptyTileIsOneByte() {
+    TileCounts counts = counts(new double[] {-45}, new double[] {90});
+
+    Assert.assertArrayEquals(new byte[] {0}, counts.tile(1, 0, 0));
+    Assert.assertArrayEquals(new byte[] {0}, counts(new double[0], new double[0]).tile(0, 0, 0));
+  }
+
+  @Test
+  public void everyZoomCountsEveryPointOnce() {
+    Random random = new Random(7);
+    double[] lats = new double[5000];
+    double[] lngs = new double[lats.length];
+    for (int i = 0; i < lats.length; i++) {
+      lats[i] = random.nextDouble() * 180 - 90;
+      lngs[i] = random.nextDouble() * 360 - 180;
+    }
+    TileCounts counts = counts(lats, lngs);
+
+    for (int zoom = 0; zoom <= MAX_ZOOM; zoom++) {
+      Map<Long, Integer> expected = new HashMap<>();
+      for (int i = 0; i < lats.length; i++) {
+        expected.merge(referenceBin(lats[i], lngs[i], zoom), 1, Integer::sum);
+      }
+
+      Map<Long, Integer> actual = new HashMap<>();
+      int tiles = 1 << zoom;
+      for (int x = 0; x < tiles; x++) {
+        for (int y = 0; y < tiles; y++) {
+          for (Map.Entry<Integer, Integer> bin : decode(counts.tile(zoom, x, y)).entrySet()) {
+            long binX = x * 16L + bin.getKey() % 16;
+            long binY = y * 16L + bin.getKey() / 16;
+            actual.put(binY * tiles * 16 + binX, bin.getValue());
+          }
+        }
+      }
+      Assert.assertEquals("zoom " + zoom, expected, actual);
+    }
+  }
+
+  @Test
+  public void storedAndSummedZoomsAgree() {
+    Random random = new Random(11);
+    double[] lats = new double[2000];
+    double[] lngs = new double[lats.length];
+    for (int i = 0; i < lats.length; i++) {
+      // Crowded around one spot, so coarse bins sum many fine ones.
+      lats[i] = 40 + random.nextGaussian();
+      lngs[i] = -100 + random.nextGaussian();
+    }
+    TileCounts shallow = new TileCounts(lats, lngs, TileCounts.STORED_ZOOM);
+    TileCounts deep = new TileCounts(lats, lngs, 12);
+
+    for (int zoom = 0; zoom <= TileCounts.STORED_ZOOM; zoom++) {
+      for (int x = 0; x < 1 << zoom; x++) {
+        for (int y = 0; y < 1 << zoom; y++) {
+          Assert.assertArrayEquals(shallow.tile(zoom, x, y), deep.tile(zoom, x, y));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void deepestSupportedZoom() {
+    TileCounts counts = new TileCounts(new double[] {0, 0}, new double[] {0, -1e-7}, 27);
+
+    int middle = 1 << 26;
+    Assert.assertEquals(bins(0, 1), decode(counts.tile(27, middle, middle)));
+    Assert.assertEquals(bins(15, 1), decode(counts.tile(27, middle - 1, middle)));
+    Assert.assertEquals(bins(0, 1), decode(counts.tile(1, 1, 1)));
+    Assert.assertEquals(bins(15, 1), decode(counts.tile(1, 0, 1)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void maximumZoomPastZOrderBitsIsRejected() {
+    new TileCounts(new double[0], new double[0], 28);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void zoomPastTheMaximumIsRejected() {
+    counts(new double[0], new double[0]).tile(MAX_ZOOM + 1, 0, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void tileOutsideTheWorldIsRejected() {
+    counts(new double[0], new double[0]).tile(1, 2, 0);
+  }
+
+  private static TileCounts counts(double[] lats, double[] lngs) {
+    return new TileCounts(lats, lngs, MAX_ZOOM);
+  }
+
+  private static Map<Integer, Integer> bins(int bin, int count) {
+    Map<Integer, Integer> bins = new TreeMap<>();
+    bins.put(bin, count);
+    return bins;
+  }
+
+  // The bin of a point among all the 16 pixel bins of a zoom, numbered row by row.
+  private static long referenceBin(double lat, double lng, int zoom) {
+    long bins = 16L << zoom;
+    double y = 0.5 - Math.log(Math.tan(Math.PI / 4 + Math.toRadians(lat) / 2)) / (2 * Math.PI);
+    long binX = Math.min(bins - 1, (long) ((lng + 180) / 360 * bins));
+    long binY = Math.min(bins - 1, Math.max(0, (long) Math.floor(y * bins)));
+    return binY * bins + binX;
+  }
+
+  // Decodes a tile into the count of each non-empty bin.
+  private static Map<Integer, Integer> decode(byte[] tile) {
+    int[] position = {0};
+    int size = readVarint(tile, position);
+    Map<Integer, Integer> bins = new TreeMap<>();
+    int bin = 0;
+    for (int i = 0; i < size; i++) {
+      bin += readVarint(tile, position);
+      bins.put(bin, readVarint(tile, position));
+    }
+    Assert.assertEquals("trailing bytes", tile.length, position[0]);
+    return bins;
+  }
+
+  private static int readVarint(byte[] bytes, int[] position) {
+    int value = 0;
+    for (int shift = 0; ; shift += 7) {
+      byte b = bytes[position[0]++];
+      value |= (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+  }
+}
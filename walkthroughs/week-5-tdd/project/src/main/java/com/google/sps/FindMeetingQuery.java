@@ -47,6 +47,10 @@ public final class FindMeetingQuery {
    * 
   */
   public Collection<TimeRange> query(Collection<Event> events, MeetingRequest request) {
+    if (request.getDuration() > TimeRange.WHOLE_DAY.duration()) {
+      return Collections.emptyList();
+    }
+
     if (request.getAttendees().size() <= 0 && request.getOptionalAttendees().size() <= 0) {
       return Arrays.asList(TimeRange.WHOLE_DAY);
     }  
@@ -54,18 +58,8 @@ public final class FindMeetingQuery {
     HashSet<String> mandatoryAttendees = new HashSet<String>(request.getAttendees());
     HashSet<String> optionalAttendees = new HashSet<String>(request.getOptionalAttendees());
     HashSet<String> allAttendees = Sets.newHashSet(Iterables.concat(mandatoryAttendees, optionalAttendees));
-      
-    String endOfDayTitle = "END_OF_DAY";
-    String startOfDayTitle = "START_OF_DAY";
-    Event endOfDay = new Event(endOfDayTitle, TimeRange.fromStartDuration(TimeRange.END_OF_DAY + 1, 0), allAttendees);
-    Event startOfDay = new Event(startOfDayTitle, TimeRange.fromStartDuration(TimeRange.START_OF_DAY, 0), allAttendees);
 
-    LinkedList<Event> sortedEvents = new LinkedList<Event>(events);
-
-    sortedEvents.add(endOfDay);
-    sortedEvents.add(startOfDay);
-      
-    sortedEvents.sort(Event.EVENT_COMPARATOR);
+    LinkedList<Event> sortedEvents = sortedEventsWithDayBounds(events, allAttendees);
 
     LinkedList<Event> applicableEventsOnly = removeEventsWithNoAttendees(mandatoryAttendees, sortedEvents);
     LinkedList<Event> mandatoryNonOverlapping = sortedEventsIntoNonOverlappingSortedEvents(mandatoryAttendees, applicableEventsOnly);
@@ -87,6 +81,225 @@ public final class FindMeetingQuery {
     return finalTimeRanges;
   }
    
+  /*
+   * Function to report the minimal relaxations that would create a slot for the mandatory attendees.
+   * It reuses the same sorted and merged sweep as {@code query} and reports: the longest duration that
+   * currently fits, the smallest set of conflicting events that would need to move to open a window of
+   * the requested duration, and the mandatory attendee who is busy for the most time.
+   * 
+   * Runtime Complexity: O(n*q + n*log(n)) where 'n' is equals to the length of events
+   * and 'q' is equals to the length of the mandatory attendees
+   * 
+   * @param events    A collection of events which has attendees, our results should avoid these events
+   * @param request   A specification on the minimum duration and mandatory attendees
+   * 
+   * @return          The relaxations that would allow the meeting to be scheduled
+   * 
+  */
+  public MeetingRelaxation relax(Collection<Event> events, MeetingRequest request) {
+    HashSet<String> mandatoryAttendees = new HashSet<String>(request.getAttendees());
+    if (mandatoryAttendees.size() <= 0) {
+      // Nobody is busy, the window is only missing when the meeting is longer than a day.
+      TimeRange window = request.getDuration() > TimeRange.WHOLE_DAY.duration()
+          ? null : TimeRange.fromStartDuration(TimeRange.START_OF_DAY, (int) request.getDuration());
+      return new MeetingRelaxation(TimeRange.WHOLE_DAY.duration(), window, Collections.<Event>emptyList(), null, 0);
+    }
+
+    LinkedList<Event> sortedEvents = sortedEventsWithDayBounds(events, mandatoryAttendees);
+    LinkedList<Event> applicableEventsOnly = removeEventsWithNoAttendees(mandatoryAttendees, sortedEvents);
+    LinkedList<Event> mandatoryNonOverlapping = sortedEventsIntoNonOverlappingSortedEvents(mandatoryAttendees, applicableEventsOnly);
+
+    int longestAvailableDuration = longestGapBetweenSortedNonOverlappingEvents(mandatoryNonOverlapping);
+
+    // Drop the start and end of day bounds, they can't be moved.
+    ArrayList<Event> conflicting = new ArrayList<>();
+    for (Event event : applicableEventsOnly) {
+      if (event.getWhen().duration() > 0) {
+        conflicting.add(event);
+      }
+    }
+
+    TimeRange window = windowWithFewestConflicts(conflicting, request);
+    ArrayList<Event> eventsToMove = new ArrayList<>();
+    if (window != null) {
+      for (Event event : conflicting) {
+        if (event.getWhen().overlaps(window)) {
+          eventsToMove.add(event);
+        }
+      }
+    }
+
+    String busiestAttendee = null;
+    int busiestAttendeeMinutes = 0;
+    for (String attendee : mandatoryAttendees) {
+      int busyMinutes = busyMinutesOfAttendee(attendee, conflicting);
+      if (busyMinutes > busiestAttendeeMinutes) {
+        busiestAttendee = attendee;
+        busiestAttendeeMinutes = busyMinutes;
+      }
+    }
+
+    return new MeetingRelaxation(longestAvailableDuration, window, eventsToMove, busiestAttendee, busiestAttendeeMinutes);
+  }
+
+  /*
+   * Adds the start and end of day bounds to the events and sorts them
+   * 
+   * Runtime: O(n*log(n)) where 'n' is the length of events
+   * 
+   * @param events      A collection of the events to sort
+   * @param attendees   A hashset of all attendees the day bounds should belong to
+   * 
+   * return   A sorted list of events starting and ending with the day bounds
+   * 
+  */
+  private LinkedList<Event> sortedEventsWithDayBounds(Collection<Event> events, HashSet<String> attendees) {
+    String endOfDayTitle = "END_OF_DAY";
+    String startOfDayTitle = "START_OF_DAY";
+    Event endOfDay = new Event(endOfDayTitle, TimeRange.fromStartDuration(TimeRange.END_OF_DAY + 1, 0), attendees);
+    Event startOfDay = new Event(startOfDayTitle, TimeRange.fromStartDuration(TimeRange.START_OF_DAY, 0), attendees);
+
+    LinkedList<Event> sortedEvents = new LinkedList<Event>(events);
+
+    sortedEvents.add(endOfDay);
+    sortedEvents.add(startOfDay);
+      
+    sortedEvents.sort(Event.EVENT_COMPARATOR);
+
+    return sortedEvents;
+  }
+
+  /*
+   * Finds the longest gap between events
+   * 
+   * Runtime complexity: O(n) where 'n' is the size of sequentialEvents
+   * 
+   * @param sequentialEvents  list of events that are sorted by time and non overlapping
+   * 
+   * return the duration in minutes of the longest gap
+   * 
+   */
+  private int longestGapBetweenSortedNonOverlappingEvents(LinkedList<Event> sequentialEvents) {
+    int longestGap = 0;
+    Event previousEvent = null;
+
+    for (Event event : sequentialEvents) {
+      if (previousEvent != null) {
+        longestGap = Math.max(longestGap, event.getWhen().start() - previousEvent.getWhen().end());
+      }
+      previousEvent = event;
+    }
+
+    return longestGap;
+  }
+
+  /*
+   * Finds the window of the requested duration which overlaps the fewest events. The number of
+   * overlapping events only changes when the window touches an event, so it's enough to try windows
+   * starting at the start of the day, at the end of an event, or ending at the start of an event.
+   * 
+   * Runtime complexity: O(n*log(n)) where 'n' is the size of events
+   * 
+   * @param events    list of events with a positive duration
+   * @param request
+   * 
+   * return the window with the fewest conflicts, or null if the duration doesn't fit in a day
+   * 
+   */
+  private TimeRange windowWithFewestConflicts(List<Event> events, MeetingRequest request) {
+    long duration = request.getDuration();
+    if (duration > TimeRange.WHOLE_DAY.duration()) {
+      return null;
+    }
+
+    int[] starts = new int[events.size()];
+    int[] ends = new int[events.size()];
+    for (int i = 0; i < events.size(); ++i) {
+      starts[i] = events.get(i).getWhen().start();
+      ends[i] = events.get(i).getWhen().end();
+    }
+    Arrays.sort(starts);
+    Arrays.sort(ends);
+
+    int latestStart = (int) (TimeRange.WHOLE_DAY.duration() - duration);
+    int bestStart = TimeRange.START_OF_DAY;
+    int fewestConflicts = Integer.MAX_VALUE;
+
+    int[] candidates = new int[2 * events.size() + 1];
+    candidates[0] = TimeRange.START_OF_DAY;
+    for (int i = 0; i < events.size(); ++i) {
+      candidates[2 * i + 1] = ends[i];
+      candidates[2 * i + 2] = (int) (starts[i] - duration);
+    }
+
+    for (int candidate : candidates) {
+      if (candidate < TimeRange.START_OF_DAY || candidate > latestStart) {
+        continue;
+      }
+
+      // Every event which ends after the window starts and starts before the window ends overlaps it.
+      int conflicts = countLessThan(starts, candidate + duration) - countLessThan(ends, candidate + 1);
+      if (conflicts < fewestConflicts || (conflicts == fewestConflicts && candidate < bestStart)) {
+        fewestConflicts = conflicts;
+        bestStart = candidate;
+      }
+    }
+
+    return TimeRange.fromStartDuration(bestStart, (int) duration);
+  }
+
+  /*
+   * Counts the values of a sorted array which are strictly less than a bound
+   * 
+   * Runtime complexity: O(log(n)) where 'n' is the size of sorted
+   * 
+   */
+  private int countLessThan(int[] sorted, long bound) {
+    int low = 0;
+    int high = sorted.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (sorted[mid] < bound) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+
+    return low;
+  }
+
+  /*
+   * Sums the minutes an attendee is busy, counting overlapping events only once
+   * 
+   * Runtime complexity: O(n) where 'n' is the size of sortedEvents
+   * 
+   * @param attendee      the attendee to check
+   * @param sortedEvents  list of events sorted by time
+   * 
+   * return the total busy minutes of the attendee
+   * 
+   */
+  private int busyMinutesOfAttendee(String attendee, List<Event> sortedEvents) {
+    int busyMinutes = 0;
+    int coveredUntil = TimeRange.START_OF_DAY;
+
+    for (Event event : sortedEvents) {
+      if (!event.getAttendees().contains(attendee)) {
+        continue;
+      }
+
+      int start = Math.max(event.getWhen().start(), coveredUntil);
+      int end = event.getWhen().end();
+      if (end > start) {
+        busyMinutes += end - start;
+        coveredUntil = end;
+      }
+    }
+
+    return busyMinutes;
+  }
+
   /*
    * Function to merge time ranges that intersect between two lists of time ranges. Does this
    * by iterating through each one of the optional and mandatory but never goes to a previously 
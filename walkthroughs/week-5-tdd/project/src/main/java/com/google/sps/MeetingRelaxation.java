@@ -0,0 +1,92 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * MeetingRelaxation is the container class for the changes to a {@code MeetingRequest} that would
+ * allow it to be scheduled. Relaxations are considered read-only.
+ */
+public final class MeetingRelaxation {
+  private final int longestAvailableDuration;
+  private final TimeRange window;
+  private final Collection<Event> eventsToMove = new ArrayList<>();
+  private final String busiestAttendee;
+  private final int busiestAttendeeMinutes;
+
+  /**
+   * Creates a new relaxation.
+   *
+   * @param longestAvailableDuration The longest duration in minutes that fits for all mandatory
+   *     attendees.
+   * @param window The window of the requested duration which conflicts with the fewest events. Null
+   *     if the requested duration is longer than a day.
+   * @param eventsToMove The events which would need to move to free {@code window}. Must be non-null.
+   * @param busiestAttendee The mandatory attendee who is busy for the most time. Null if nobody is
+   *     busy.
+   * @param busiestAttendeeMinutes The minutes {@code busiestAttendee} is busy for.
+   */
+  public MeetingRelaxation(int longestAvailableDuration, TimeRange window,
+      Collection<Event> eventsToMove, String busiestAttendee, int busiestAttendeeMinutes) {
+    if (eventsToMove == null) {
+      throw new IllegalArgumentException("eventsToMove cannot be null. Use empty array instead.");
+    }
+
+    this.longestAvailableDuration = longestAvailableDuration;
+    this.window = window;
+    this.eventsToMove.addAll(eventsToMove);
+    this.busiestAttendee = busiestAttendee;
+    this.busiestAttendeeMinutes = busiestAttendeeMinutes;
+  }
+
+  /**
+   * Returns the longest duration in minutes that can currently be scheduled.
+   */
+  public int getLongestAvailableDuration() {
+    return longestAvailableDuration;
+  }
+
+  /**
+   * Returns the {@code TimeRange} which would be free after moving {@code getEventsToMove()}.
+   */
+  public TimeRange getWindow() {
+    return window;
+  }
+
+  /**
+   * Returns a read-only collection of the smallest set of events to move to free the window.
+   */
+  public Collection<Event> getEventsToMove() {
+    return Collections.unmodifiableCollection(eventsToMove);
+  }
+
+  /**
+   * Returns the mandatory attendee who blocks the most time.
+   */
+  public String getBusiestAttendee() {
+    return busiestAttendee;
+  }
+
+  /**
+   * Returns the minutes the busiest attendee is busy for.
+   */
+  public int getBusiestAttendeeMinutes() {
+    return busiestAttendeeMinutes;
+  }
+}
@@ -0,0 +1,193 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * MeetingScheduler places a set of meetings with overlapping attendees so that none of them conflict
+ * with each other or with the existing events.
+ */
+public final class MeetingScheduler {
+  private static final String SCHEDULED_TITLE = "SCHEDULED_MEETING";
+
+  private final FindMeetingQuery findMeetingQuery = new FindMeetingQuery();
+  private final long timeBudgetMillis;
+
+  /**
+   * Creates a new scheduler.
+   *
+   * @param timeBudgetMillis The maximum time in milliseconds to spend backtracking. Must be
+   *     non-negative.
+   */
+  public MeetingScheduler(long timeBudgetMillis) {
+    if (timeBudgetMillis < 0) {
+      throw new IllegalArgumentException("timeBudgetMillis cannot be negative");
+    }
+
+    this.timeBudgetMillis = timeBudgetMillis;
+  }
+
+  /*
+   * Function to assign non conflicting time ranges to a set of meetings. Meetings are placed greedily,
+   * most constrained first, at the earliest or latest end of every available time range. When a
+   * meeting can't be placed the previous choices are revisited until every meeting is placed or the
+   * time budget runs out, in which case the assignment placing the most meetings is returned. The
+   * greedy pass always finishes, only the improvements on it are bounded by the budget, so the result
+   * never places fewer meetings than plain greedy placement. Only the mandatory attendees are
+   * considered, a meeting is never placed on one of their events.
+   * 
+   * Runtime Complexity: O(m*n*(q + k)) for the greedy pass where 'm' is the number of requests, 'n'
+   * is equals to the length of events plus 'm' and 'q' is the number of mandatory attendees.
+   * Backtracking is bounded by the time budget.
+   * 
+   * @param events      A collection of events which has attendees, our results should avoid these events
+   * @param requests    The meetings to place
+   * 
+   * @return            A list with the time range of every request in the same order, null where a
+   *                    request couldn't be placed
+   * 
+  */
+  public List<TimeRange> schedule(Collection<Event> events, List<MeetingRequest> requests) {
+    Integer[] order = new Integer[requests.size()];
+    for (int i = 0; i < order.length; ++i) {
+      order[i] = i;
+    }
+
+    // Place the meetings with the most attendees and the longest duration first, they're the hardest
+    // to fit once the day starts filling up.
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        MeetingRequest first = requests.get(a);
+        MeetingRequest second = requests.get(b);
+        if (first.getAttendees().size() != second.getAttendees().size()) {
+          return Integer.compare(second.getAttendees().size(), first.getAttendees().size());
+        }
+        return Long.compare(second.getDuration(), first.getDuration());
+      }
+    });
+
+    Search search = new Search(requests, order, System.currentTimeMillis());
+    search.place(new ArrayList<Event>(events), 0, 0);
+
+    return Arrays.asList(search.best);
+  }
+
+  /*
+   * Returns the start times to try for a request, the earliest and latest placement within each
+   * available time range
+   * 
+   * Runtime complexity: O(r) where 'r' is the size of available
+   * 
+   */
+  private List<Integer> candidateStarts(Collection<TimeRange> available, MeetingRequest request) {
+    List<Integer> starts = new ArrayList<>();
+
+    for (TimeRange range : available) {
+      if (range.duration() < request.getDuration()) {
+        continue;
+      }
+
+      starts.add(range.start());
+      int latestStart = (int) (range.end() - request.getDuration());
+      if (latestStart != range.start()) {
+        starts.add(latestStart);
+      }
+    }
+
+    return starts;
+  }
+
+  /**
+   * Depth first search over the placements of every request, keeping the best assignment found.
+   */
+  private final class Search {
+    private final List<MeetingRequest> requests;
+    private final Integer[] order;
+    private final long startMillis;
+    private final TimeRange[] current;
+    private final TimeRange[] best;
+    private int bestPlaced = -1;
+    // The first descent is the greedy assignment, the time budget only applies once it's complete.
+    private boolean greedyDone;
+
+    private Search(List<MeetingRequest> requests, Integer[] order, long startMillis) {
+      this.requests = requests;
+      this.order = order;
+      this.startMillis = startMillis;
+      this.current = new TimeRange[requests.size()];
+      this.best = new TimeRange[requests.size()];
+    }
+
+    /*
+     * Places the request at {@code depth} and recurses into the remaining ones
+     * 
+     * return true when every request has been placed or the time budget ran out
+     * 
+     */
+    private boolean place(List<Event> events, int depth, int placed) {
+      if (placed > bestPlaced) {
+        bestPlaced = placed;
+        System.arraycopy(current, 0, best, 0, current.length);
+      }
+
+      if (depth == order.length) {
+        greedyDone = true;
+        return placed == order.length;
+      }
+
+      // Even placing all the remaining requests can't beat the best assignment.
+      if (placed + (order.length - depth) <= bestPlaced) {
+        return false;
+      }
+
+      // Compares the elapsed time, a deadline would overflow for a budget of Long.MAX_VALUE.
+      if (greedyDone && System.currentTimeMillis() - startMillis > timeBudgetMillis) {
+        return true;
+      }
+
+      int index = order[depth];
+      MeetingRequest request = requests.get(index);
+      // The query falls back to slots which only suit the optional attendees when the mandatory
+      // ones have none, those would double book a mandatory attendee.
+      MeetingRequest mandatoryOnly = new MeetingRequest(request.getAttendees(), request.getDuration());
+      Collection<TimeRange> available = findMeetingQuery.query(events, mandatoryOnly);
+
+      for (int start : candidateStarts(available, request)) {
+        TimeRange when = TimeRange.fromStartDuration(start, (int) request.getDuration());
+        events.add(new Event(SCHEDULED_TITLE, when, new HashSet<String>(request.getAttendees())));
+        current[index] = when;
+
+        boolean done = place(events, depth + 1, placed + 1);
+
+        current[index] = null;
+        events.remove(events.size() - 1);
+        if (done) {
+          return true;
+        }
+      }
+
+      // Leave this request unplaced and try to place the rest.
+      return place(events, depth + 1, placed);
+    }
+  }
+}
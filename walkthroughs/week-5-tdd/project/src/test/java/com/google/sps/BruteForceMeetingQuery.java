@@ -0,0 +1,96 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reference solver which marks every busy minute of the day. It's too slow for production but simple
+ * enough to trust, which makes it a good first candidate for the differential runner.
+ *
+ * <p>It deliberately copies one behavior of {@code FindMeetingQuery} which isn't in the spec: when
+ * the mandatory attendees have no slot it returns the optional attendees' slots instead of nothing.
+ * Agreeing with it there only shows the sweep is right, the spec itself is checked separately by
+ * {@code FindMeetingQueryDifferentialTest.rangesFollowTheSpec}.
+ */
+public final class BruteForceMeetingQuery {
+  public Collection<TimeRange> query(Collection<Event> events, MeetingRequest request) {
+    Collection<String> mandatory = request.getAttendees();
+    Collection<String> optional = request.getOptionalAttendees();
+    if (request.getDuration() > TimeRange.WHOLE_DAY.duration()) {
+      return Collections.emptyList();
+    }
+    if (mandatory.isEmpty() && optional.isEmpty()) {
+      return Arrays.asList(TimeRange.WHOLE_DAY);
+    }
+
+    List<TimeRange> available = mandatory.isEmpty()
+        ? Collections.<TimeRange>emptyList()
+        : freeRanges(events, mandatory, request.getDuration());
+    if (optional.isEmpty()) {
+      return available;
+    }
+
+    List<TimeRange> availableWithOptional = freeRanges(events, optional, request.getDuration());
+    if (available.isEmpty()) {
+      return availableWithOptional;
+    }
+
+    List<TimeRange> intersections = new ArrayList<>();
+    for (TimeRange optionalRange : availableWithOptional) {
+      for (TimeRange mandatoryRange : available) {
+        int start = Math.max(optionalRange.start(), mandatoryRange.start());
+        int end = Math.min(optionalRange.end(), mandatoryRange.end());
+        if (end - start >= request.getDuration()) {
+          intersections.add(TimeRange.fromStartEnd(start, end, false));
+        }
+      }
+    }
+
+    return intersections.isEmpty() ? available : intersections;
+  }
+
+  private List<TimeRange> freeRanges(
+      Collection<Event> events, Collection<String> attendees, long duration) {
+    boolean[] busy = new boolean[TimeRange.WHOLE_DAY.duration()];
+    for (Event event : events) {
+      if (Collections.disjoint(event.getAttendees(), attendees)) {
+        continue;
+      }
+
+      for (int minute = event.getWhen().start(); minute < event.getWhen().end(); ++minute) {
+        busy[minute] = true;
+      }
+    }
+
+    List<TimeRange> ranges = new ArrayList<>();
+    int start = 0;
+    for (int minute = 0; minute <= busy.length; ++minute) {
+      if (minute == busy.length || busy[minute]) {
+        if (minute - start >= duration && minute > start) {
+          ranges.add(TimeRange.fromStartEnd(start, minute, false));
+        }
+        start = minute + 1;
+      }
+    }
+
+    return ranges;
+  }
+}
@@ -0,0 +1,113 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Runs an alternative solver and {@code FindMeetingQuery} over the same random calendars, collecting
+ * every case where they disagree and how fast each of them was.
+ */
+public final class DifferentialRunner {
+  /**
+   * A solver answering the same question as {@code FindMeetingQuery.query}.
+   */
+  public interface Solver {
+    Collection<TimeRange> query(Collection<Event> events, MeetingRequest request);
+  }
+
+  /**
+   * Outcome of a run.
+   */
+  public static final class Result {
+    private final List<String> mismatches = new ArrayList<>();
+    private long oracleNanos;
+    private long candidateNanos;
+    private int trials;
+
+    /**
+     * Returns a description of every case where the candidate disagreed with the oracle.
+     */
+    public List<String> getMismatches() {
+      return mismatches;
+    }
+
+    /**
+     * Returns how many times faster the candidate is than the oracle.
+     */
+    public double getThroughputRatio() {
+      return candidateNanos == 0 ? 0 : (double) oracleNanos / candidateNanos;
+    }
+
+    public int getTrials() {
+      return trials;
+    }
+  }
+
+  private final Solver oracle;
+
+  public DifferentialRunner() {
+    final FindMeetingQuery findMeetingQuery = new FindMeetingQuery();
+    this.oracle = new Solver() {
+      @Override
+      public Collection<TimeRange> query(Collection<Event> events, MeetingRequest request) {
+        return findMeetingQuery.query(events, request);
+      }
+    };
+  }
+
+  /**
+   * Compares {@code candidate} against the oracle on {@code trials} calendars from {@code calendar}.
+   */
+  public Result run(Solver candidate, RandomCalendar calendar, int trials) {
+    Result result = new Result();
+
+    for (int i = 0; i < trials; ++i) {
+      Collection<Event> events = calendar.nextEvents();
+      MeetingRequest request = calendar.nextRequest();
+
+      long start = System.nanoTime();
+      Collection<TimeRange> expected = new ArrayList<>(oracle.query(events, request));
+      long afterOracle = System.nanoTime();
+      Collection<TimeRange> actual = new ArrayList<>(candidate.query(events, request));
+      long afterCandidate = System.nanoTime();
+
+      result.oracleNanos += afterOracle - start;
+      result.candidateNanos += afterCandidate - afterOracle;
+      result.trials++;
+
+      if (!expected.equals(actual)) {
+        result.mismatches.add(String.format("trial %d: attendees=%s optional=%s duration=%d "
+                + "events=%s expected=%s actual=%s",
+            i, request.getAttendees(), request.getOptionalAttendees(), request.getDuration(),
+            describe(events), expected, actual));
+      }
+    }
+
+    return result;
+  }
+
+  private static String describe(Collection<Event> events) {
+    List<String> descriptions = new ArrayList<>();
+    for (Event event : events) {
+      descriptions.add(event.getWhen() + " " + event.getAttendees());
+    }
+
+    return descriptions.toString();
+  }
+}
@@ -0,0 +1,142 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.sps;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Compares {@code FindMeetingQuery} with {@link BruteForceMeetingQuery} over random calendars, and
+ * checks the answers against the spec directly. The brute force solver copies the fallback to slots
+ * of only the optional attendees, so the spec checks are what catch mistakes they both share.
+ */
+@RunWith(JUnit4.class)
+public final class FindMeetingQueryDifferentialTest {
+  private static final long SEED = 20200701L;
+  private static final int TRIALS = 2000;
+
+  private DifferentialRunner runner;
+
+  @Before
+  public void setUp() {
+    runner = new DifferentialRunner();
+  }
+
+  @Test
+  public void bruteForceAgreesOnSmallTeams() {
+    assertAgrees(new RandomCalendar(SEED, 3, 6));
+  }
+
+  @Test
+  public void bruteForceAgreesOnBusyCalendars() {
+    assertAgrees(new RandomCalendar(SEED + 1, 8, 40));
+  }
+
+  @Test
+  public void rangesAreLongEnoughAndSorted() {
+    RandomCalendar calendar = new RandomCalendar(SEED + 2, 5, 20);
+    FindMeetingQuery query = new FindMeetingQuery();
+
+    for (int i = 0; i < TRIALS; ++i) {
+      Collection<TimeRange> ranges = query.query(calendar.nextEvents(), calendar.nextRequest());
+
+      TimeRange previous = null;
+      for (TimeRange range : ranges) {
+        Assert.assertTrue(range.start() >= TimeRange.START_OF_DAY);
+        Assert.assertTrue(range.end() <= TimeRange.END_OF_DAY + 1);
+        if (previous != null) {
+          Assert.assertTrue(previous.end() <= range.start());
+        }
+        previous = range;
+      }
+    }
+  }
+
+  @Test
+  public void rangesFollowTheSpec() {
+    RandomCalendar calendar = new RandomCalendar(SEED + 3, 5, 20);
+    FindMeetingQuery query = new FindMeetingQuery();
+
+    for (int i = 0; i < TRIALS; ++i) {
+      Collection<Event> events = calendar.nextEvents();
+      MeetingRequest request = calendar.nextRequest();
+      Collection<TimeRange> ranges = query.query(events, request);
+
+      Set<String> everyone = new HashSet<>(request.getAttendees());
+      everyone.addAll(request.getOptionalAttendees());
+      boolean mandatoryCanMeet = hasSlot(events, request.getAttendees(), request.getDuration());
+      boolean everyoneCanMeet = hasSlot(events, everyone, request.getDuration());
+
+      for (TimeRange range : ranges) {
+        Assert.assertTrue(range.duration() >= request.getDuration());
+        // The spec returns nothing when the mandatory attendees can't meet, the query falls back
+        // to the optional attendees' slots instead. Outside of that case every range must suit
+        // the mandatory attendees, and everyone when there's a slot for everyone.
+        if (mandatoryCanMeet) {
+          Assert.assertTrue(isFree(events, request.getAttendees(), range));
+        }
+        if (everyoneCanMeet) {
+          Assert.assertTrue(isFree(events, everyone, range));
+        }
+      }
+      if (everyoneCanMeet || (request.getOptionalAttendees().isEmpty() && mandatoryCanMeet)) {
+        Assert.assertFalse(ranges.isEmpty());
+      }
+    }
+  }
+
+  private static boolean isFree(Collection<Event> events, Collection<String> attendees, TimeRange range) {
+    for (Event event : events) {
+      if (event.getWhen().overlaps(range) && !Collections.disjoint(event.getAttendees(), attendees)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean hasSlot(Collection<Event> events, Collection<String> attendees, long duration) {
+    if (duration > TimeRange.WHOLE_DAY.duration()) {
+      return false;
+    }
+    for (int start = TimeRange.START_OF_DAY; start + duration <= TimeRange.END_OF_DAY + 1; ++start) {
+      if (isFree(events, attendees, TimeRange.fromStartDuration(start, (int) duration))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void assertAgrees(RandomCalendar calendar) {
+    final BruteForceMeetingQuery bruteForce = new BruteForceMeetingQuery();
+    DifferentialRunner.Result result = runner.run(new DifferentialRunner.Solver() {
+      @Override
+      public Collection<TimeRange> query(Collection<Event> events, MeetingRequest request) {
+        return bruteForce.query(events, request);
+      }
+    }, calendar, TRIALS);
+
+    Assert.assertEquals(TRIALS, result.getTrials());
+    Assert.assertTrue(result.getThroughputRatio() > 0);
+    Assert.assertEquals(result.getMismatches().toString(), 0, result.getMismatches().size());
+  }
+}
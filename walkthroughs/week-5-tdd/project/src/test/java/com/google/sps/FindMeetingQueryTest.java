@@ -79,6 +79,17 @@ public final class FindMeetingQueryTest {
     Assert.assertEquals(expected, actual);
   }
 
+  @Test
+  public void noOptionsForTooLongOfARequestWithoutAttendees() {
+    int duration = TimeRange.WHOLE_DAY.duration() + 1;
+    MeetingRequest request = new MeetingRequest(NO_ATTENDEES, duration);
+
+    Collection<TimeRange> actual = query.query(NO_EVENTS, request);
+    Collection<TimeRange> expected = Collections.emptyList();
+
+    Assert.assertEquals(expected, actual);
+  }
+
   @Test
   public void eventSplitsRestriction() {
     // The event should split the day into two options (before and after the event).
@@ -448,4 +459,98 @@ public final class FindMeetingQueryTest {
 
     Assert.assertEquals(expected, actual);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void relaxReportsLongestAvailableDurationAndEventsToMove() {
+    // There's only 30 minutes for A, so a one hour meeting needs an event to move.
+    //
+    // Events  : |--A--|  |-------A-------|
+    // Day     : |------------------------|
+    // Window  : |---|
+
+    Event firstEvent = new Event("Event 1",
+        TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0830AM, false), Arrays.asList(PERSON_A));
+    Event secondEvent = new Event("Event 2",
+        TimeRange.fromStartEnd(TIME_0900AM, TimeRange.END_OF_DAY, true), Arrays.asList(PERSON_A));
+    Collection<Event> events = Arrays.asList(firstEvent, secondEvent);
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_1_HOUR);
+
+    MeetingRelaxation actual = query.relax(events, request);
+
+    Assert.assertEquals(DURATION_30_MINUTES, actual.getLongestAvailableDuration());
+    Assert.assertEquals(
+        TimeRange.fromStartDuration(TimeRange.START_OF_DAY, DURATION_1_HOUR), actual.getWindow());
+    Assert.assertEquals(Arrays.asList(firstEvent), new ArrayList<>(actual.getEventsToMove()));
+    Assert.assertEquals(PERSON_A, actual.getBusiestAttendee());
+  }
+
+  @Test
+  public void relaxWithoutAttendeesHasWindowOfRequestedDuration() {
+    MeetingRequest request = new MeetingRequest(NO_ATTENDEES, DURATION_1_HOUR);
+
+    MeetingRelaxation actual = query.relax(NO_EVENTS, request);
+
+    Assert.assertEquals(TimeRange.WHOLE_DAY.duration(), actual.getLongestAvailableDuration());
+    Assert.assertEquals(
+        TimeRange.fromStartDuration(TimeRange.START_OF_DAY, DURATION_1_HOUR), actual.getWindow());
+    Assert.assertTrue(actual.getEventsToMove().isEmpty());
+  }
+
+  @Test
+  public void relaxWithoutAttendeesHasNoWindowLongerThanADay() {
+    MeetingRequest request = new MeetingRequest(NO_ATTENDEES, TimeRange.WHOLE_DAY.duration() + 1);
+
+    MeetingRelaxation actual = query.relax(NO_EVENTS, request);
+
+    Assert.assertNull(actual.getWindow());
+  }
+
+  @Test
+  public void relaxMovesFewestEvents() {
+    // Starting the day frees the meeting only by moving both events of A, starting it after them
+    // only needs the event of B moved.
+    //
+    // Events  : |-A-| |-A-|
+    //                        |--------B--------|
+    // Day     : |--------------------------------|
+    // Window  :             |-------|
+
+    int time0030AM = TimeRange.getTimeInMinutes(0, 30);
+    int time0100AM = TimeRange.getTimeInMinutes(1, 0);
+    int time0130AM = TimeRange.getTimeInMinutes(1, 30);
+    int time0200AM = TimeRange.getTimeInMinutes(2, 0);
+
+    Event firstEvent = new Event("Event 1",
+        TimeRange.fromStartEnd(TimeRange.START_OF_DAY, time0030AM, false), Arrays.asList(PERSON_A));
+    Event secondEvent = new Event("Event 2",
+        TimeRange.fromStartEnd(time0100AM, time0130AM, false), Arrays.asList(PERSON_A));
+    Event thirdEvent = new Event("Event 3",
+        TimeRange.fromStartEnd(time0200AM, TimeRange.END_OF_DAY, true), Arrays.asList(PERSON_B));
+    Collection<Event> events = Arrays.asList(firstEvent, secondEvent, thirdEvent);
+
+    MeetingRequest request =
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_2_HOUR);
+
+    MeetingRelaxation actual = query.relax(events, request);
+
+    Assert.assertEquals(DURATION_30_MINUTES, actual.getLongestAvailableDuration());
+    Assert.assertEquals(
+        TimeRange.fromStartDuration(time0130AM, DURATION_2_HOUR), actual.getWindow());
+    Assert.assertEquals(Arrays.asList(thirdEvent), new ArrayList<>(actual.getEventsToMove()));
+    Assert.assertEquals(PERSON_B, actual.getBusiestAttendee());
+  }
+
+  @Test
+  public void relaxWithRoomNeedsNoChanges() {
+    Collection<Event> events = Arrays.asList(new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0830AM, DURATION_30_MINUTES), Arrays.asList(PERSON_A)));
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    MeetingRelaxation actual = query.relax(events, request);
+
+    Assert.assertTrue(actual.getEventsToMove().isEmpty());
+    Assert.assertEquals(TimeRange.END_OF_DAY + 1 - TIME_0900AM, actual.getLongestAvailableDuration());
+  }
+}
@@ -0,0 +1,211 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests the placement of several meetings together by {@link MeetingScheduler}. */
+@RunWith(JUnit4.class)
+public final class MeetingSchedulerTest {
+  // Some people that we can use in our tests.
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0830AM = TimeRange.getTimeInMinutes(8, 30);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_0930AM = TimeRange.getTimeInMinutes(9, 30);
+
+  private static final int DURATION_30_MINUTES = 30;
+  private static final int DURATION_1_HOUR = 60;
+
+  private static final long TIME_BUDGET_MILLIS = 1000;
+
+  private MeetingScheduler scheduler;
+
+  @Before
+  public void setUp() {
+    scheduler = new MeetingScheduler(TIME_BUDGET_MILLIS);
+  }
+
+  @Test
+  public void backtracksWhenGreedyPlacementBlocksAnotherMeeting() {
+    // Placing the first meeting at the earliest time leaves no room for the second one, so the
+    // first one has to move to the end of the free range.
+    //
+    // Free A, B : |--------|
+    // Free C    : |--|
+    // Meetings  : |2-|1----|
+
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            Arrays.asList(PERSON_A, PERSON_B, PERSON_C)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_0930AM, TimeRange.END_OF_DAY, true),
+            Arrays.asList(PERSON_A, PERSON_B, PERSON_C)),
+        new Event("Event 3", TimeRange.fromStartEnd(TIME_0830AM, TIME_0930AM, false),
+            Arrays.asList(PERSON_C)));
+
+    List<MeetingRequest> requests = Arrays.asList(
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_1_HOUR),
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_C), DURATION_30_MINUTES));
+
+    List<TimeRange> actual = scheduler.schedule(events, requests);
+    List<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartDuration(TIME_0830AM, DURATION_1_HOUR),
+            TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void unplaceableMeetingIsLeftOut() {
+    // There's only room for one of the two meetings of A.
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_0900AM, TimeRange.END_OF_DAY, true),
+            Arrays.asList(PERSON_A)));
+
+    List<MeetingRequest> requests =
+        Arrays.asList(new MeetingRequest(Arrays.asList(PERSON_A), DURATION_1_HOUR),
+            new MeetingRequest(Arrays.asList(PERSON_A), DURATION_1_HOUR));
+
+    List<TimeRange> actual = scheduler.schedule(events, requests);
+    List<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartDuration(TIME_0800AM, DURATION_1_HOUR), null);
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void slotOfOnlyOptionalAttendeesIsNotBooked() {
+    // A is busy all day, only the optional B is free in the morning. The query falls back to B's
+    // free time, but booking it would put the meeting on top of A's event.
+    //
+    // Events  : |---------A---------|
+    //           |-B-|
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.WHOLE_DAY, Arrays.asList(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            Arrays.asList(PERSON_B)));
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    request.addOptionalAttendee(PERSON_B);
+
+    List<TimeRange> actual = scheduler.schedule(events, Arrays.asList(request));
+    List<TimeRange> expected = Arrays.asList((TimeRange) null);
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void unlimitedBudgetStillBacktracks() {
+    // The same calendar as above, a budget of Long.MAX_VALUE must not end the search early.
+    MeetingScheduler unlimited = new MeetingScheduler(Long.MAX_VALUE);
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            Arrays.asList(PERSON_A, PERSON_B, PERSON_C)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_0930AM, TimeRange.END_OF_DAY, true),
+            Arrays.asList(PERSON_A, PERSON_B, PERSON_C)),
+        new Event("Event 3", TimeRange.fromStartEnd(TIME_0830AM, TIME_0930AM, false),
+            Arrays.asList(PERSON_C)));
+
+    List<MeetingRequest> requests = Arrays.asList(
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_1_HOUR),
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_C), DURATION_30_MINUTES));
+
+    List<TimeRange> actual = unlimited.schedule(events, requests);
+    List<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartDuration(TIME_0830AM, DURATION_1_HOUR),
+            TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void independentMeetingsShareTimes() {
+    // Meetings without common attendees don't conflict with each other.
+    List<MeetingRequest> requests =
+        Arrays.asList(new MeetingRequest(Arrays.asList(PERSON_A), DURATION_1_HOUR),
+            new MeetingRequest(Arrays.asList(PERSON_B), DURATION_1_HOUR));
+
+    List<TimeRange> actual = scheduler.schedule(Arrays.<Event>asList(), requests);
+    List<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartDuration(TimeRange.START_OF_DAY, DURATION_1_HOUR),
+            TimeRange.fromStartDuration(TimeRange.START_OF_DAY, DURATION_1_HOUR));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void zeroBudgetPlacesAtLeastAsManyMeetingsAsGreedy() {
+    // Without time to backtrack the scheduler still has to finish its greedy pass.
+    MeetingScheduler noBudget = new MeetingScheduler(0);
+
+    for (long seed = 0; seed < 200; ++seed) {
+      RandomCalendar calendar = new RandomCalendar(seed, 6, 8);
+      Collection<Event> events = calendar.nextEvents();
+      List<MeetingRequest> requests = new ArrayList<>();
+      for (int i = 0; i < 8; ++i) {
+        requests.add(calendar.nextRequest());
+      }
+
+      int placed = 0;
+      for (TimeRange range : noBudget.schedule(events, requests)) {
+        if (range != null) {
+          ++placed;
+        }
+      }
+
+      Assert.assertTrue("seed " + seed, placed >= greedyPlaced(events, requests));
+    }
+  }
+
+  // Places the requests one by one at the earliest time available, in the scheduler's order.
+  private static int greedyPlaced(Collection<Event> events, List<MeetingRequest> requests) {
+    List<MeetingRequest> ordered = new ArrayList<>(requests);
+    ordered.sort(Comparator
+        .comparingInt((MeetingRequest request) -> request.getAttendees().size()).reversed()
+        .thenComparing(Comparator.comparingLong(MeetingRequest::getDuration).reversed()));
+
+    FindMeetingQuery query = new FindMeetingQuery();
+    List<Event> scheduled = new ArrayList<>(events);
+    int placed = 0;
+    for (MeetingRequest request : ordered) {
+      MeetingRequest mandatoryOnly = new MeetingRequest(request.getAttendees(), request.getDuration());
+      for (TimeRange range : query.query(scheduled, mandatoryOnly)) {
+        if (range.duration() >= request.getDuration()) {
+          TimeRange when = TimeRange.fromStartDuration(range.start(), (int) request.getDuration());
+          scheduled.add(new Event("Greedy", when, new HashSet<String>(request.getAttendees())));
+          ++placed;
+          break;
+        }
+      }
+    }
+    return placed;
+  }
+}
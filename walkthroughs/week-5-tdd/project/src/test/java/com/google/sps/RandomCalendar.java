@@ -0,0 +1,100 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates random events and meeting requests. Using the same seed always generates the same
+ * calendars so failures can be replayed.
+ */
+public final class RandomCalendar {
+  private static final int MAX_EVENT_DURATION = 4 * 60;
+  private static final int MAX_MEETING_DURATION = 3 * 60;
+
+  private final Random random;
+  private final List<String> people = new ArrayList<>();
+  private final int maxEvents;
+
+  /**
+   * Creates a new generator.
+   *
+   * @param seed The seed of the random generator.
+   * @param numberOfPeople The number of people events and requests pick their attendees from.
+   * @param maxEvents The maximum number of events per calendar.
+   */
+  public RandomCalendar(long seed, int numberOfPeople, int maxEvents) {
+    this.random = new Random(seed);
+    this.maxEvents = maxEvents;
+    for (int i = 0; i < numberOfPeople; ++i) {
+      people.add("Person " + i);
+    }
+  }
+
+  /**
+   * Returns a new collection of events within the day, each with at least one attendee.
+   */
+  public Collection<Event> nextEvents() {
+    int numberOfEvents = random.nextInt(maxEvents + 1);
+    List<Event> events = new ArrayList<>();
+
+    for (int i = 0; i < numberOfEvents; ++i) {
+      int start = random.nextInt(TimeRange.WHOLE_DAY.duration());
+      int maxDuration = Math.min(MAX_EVENT_DURATION, TimeRange.WHOLE_DAY.duration() - start);
+      int duration = 1 + random.nextInt(maxDuration);
+
+      List<String> attendees = nextPeople(people);
+      if (attendees.isEmpty()) {
+        attendees.add(people.get(random.nextInt(people.size())));
+      }
+
+      events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration), attendees));
+    }
+
+    return events;
+  }
+
+  /**
+   * Returns a new request with random mandatory and optional attendees. Some requests are longer
+   * than a day.
+   */
+  public MeetingRequest nextRequest() {
+    long duration = random.nextInt(20) == 0
+        ? TimeRange.WHOLE_DAY.duration() + 1
+        : 1 + random.nextInt(MAX_MEETING_DURATION);
+
+    MeetingRequest request = new MeetingRequest(nextPeople(people), duration);
+    for (String attendee : nextPeople(people)) {
+      request.addOptionalAttendee(attendee);
+    }
+
+    return request;
+  }
+
+  private List<String> nextPeople(List<String> candidates) {
+    List<String> picked = new ArrayList<>();
+    for (String person : candidates) {
+      if (random.nextInt(3) == 0) {
+        picked.add(person);
+      }
+    }
+
+    return picked;
+  }
+}